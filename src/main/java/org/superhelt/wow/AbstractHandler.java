@@ -1,15 +1,117 @@
 package org.superhelt.wow;
 
+import org.superhelt.wow.dao.PlayerDao;
+import org.superhelt.wow.om.Encounter;
+import org.superhelt.wow.om.Player;
+import org.superhelt.wow.om.RaidSummary;
+
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public abstract class AbstractHandler implements PageHandler {
 
-public abstract class AbstractHandler {
+    protected static final int RAIDS_PER_PAGE = 20;
 
+    /**
+     * Handlers flush the page frame once the request has been validated and again after each expensive section, so
+     * browsers can start rendering before the slowest part of the page is built. Nothing that could still fail the
+     * request with an error status may come after the first flush.
+     */
     public void handle(HttpServletRequest request, PrintWriter writer) throws IOException {
         printMenu(writer);
     }
 
+    protected boolean await(CompletableFuture<?> write, PrintWriter writer) {
+        try {
+            write.join();
+            return true;
+        } catch (CompletionException e) {
+            writer.println("<h2>Unable to save the change, please try again</h2>");
+            return false;
+        }
+    }
+
+    protected Player requirePlayer(PlayerDao playerDao, String name) {
+        return playerDao.getByName(name).orElseThrow(() -> new IllegalArgumentException("Unknown player "+name));
+    }
+
+    protected int raidOffset(HttpServletRequest request) {
+        String offset = request.getParameter("raidOffset");
+        if(offset == null) {
+            return 0;
+        }
+        try {
+            return Math.max(Integer.parseInt(offset), 0);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    protected void printRaidLinks(PrintWriter writer, HttpServletRequest request, List<RaidSummary> raids, int offset) {
+        raids.stream().limit(RAIDS_PER_PAGE).forEach(r -> writer.format("<a href=\"?raid=%s\">%s</a><br/>\n", r.start, r.start));
+
+        LocalDate shown = shownRaid(request);
+        String raid = shown != null ? "raid=" + shown + "&" : "";
+        if(offset > 0) {
+            writer.format("<a href=\"?%sraidOffset=%d\">Newer</a> ", raid, Math.max(offset - RAIDS_PER_PAGE, 0));
+        }
+        if(raids.size() > RAIDS_PER_PAGE) {
+            writer.format("<a href=\"?%sraidOffset=%d\">Older</a>", raid, offset + RAIDS_PER_PAGE);
+        }
+    }
+
+    /**
+     * The raid parameter is echoed into links, so only a well-formed date is kept.
+     */
+    private LocalDate shownRaid(HttpServletRequest request) {
+        String raid = request.getParameter("raid");
+        if(raid == null) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(raid);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Follows edits made by others without polling: when the shown raid changes, or the raids are reloaded after a
+     * player edit, the page is fetched again with a plain GET for the same view. If a form on the page has been edited
+     * a notice with a reload link is shown instead, so the input is not lost. The page carries the version of the raid
+     * it shows, and the stream greets every (re)connect with the current one, so changes made while the page was
+     * loading or the stream was down are caught as well.
+     */
+    protected void printLiveUpdates(PrintWriter writer, HttpServletRequest request, LocalDate raid, Encounter.Boss boss, long version) {
+        StringBuilder url = new StringBuilder("?raid=").append(raid);
+        if(boss != null) {
+            url.append("&boss=").append(boss);
+        }
+        if(request.getParameter("raidOffset") != null) {
+            url.append("&raidOffset=").append(raidOffset(request));
+        }
+
+        writer.format("<div id=\"raidChanged\" class=\"notice\" style=\"display: none\">This raid has been changed. <a href=\"%s\">Reload</a></div>\n", url);
+        writer.format("<script>(function() {\n" +
+                "  var edited = false;\n" +
+                "  document.addEventListener(\"input\", function() { edited = true; });\n" +
+                "  document.addEventListener(\"change\", function() { edited = true; });\n" +
+                "  var events = new EventSource(\"/api/v1/events?raid=%s\");\n" +
+                "  function changed() {\n" +
+                "    events.close();\n" +
+                "    if(edited) { document.getElementById(\"raidChanged\").style.display = \"block\"; } else { location.replace(\"%s\"); }\n" +
+                "  }\n" +
+                "  events.addEventListener(\"hello\", function(e) { if(JSON.parse(e.data).version !== %d) { changed(); } });\n" +
+                "  events.addEventListener(\"raid\", changed); events.addEventListener(\"reload\", changed);\n" +
+                "})();</script>", raid, url, version);
+    }
+
     protected void printMenu(PrintWriter writer) {
         writer.println("<div style=\"clear:both; width: 100%\" ><a href=\"/signup\">Signups</a> <a href=\"/planRaid\">Plan</a> <a href=\"showEvents\">Events</a> <a href=\"player\">Players</a></div>");
     }
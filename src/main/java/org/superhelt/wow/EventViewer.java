@@ -1,12 +1,13 @@
 package org.superhelt.wow;
 
 import org.superhelt.wow.dao.PlayerDao;
-import org.superhelt.wow.dao.RaidDao;
+import org.superhelt.wow.dao.RaidRepository;
 import org.superhelt.wow.om.Event;
 import org.superhelt.wow.om.Player;
 import org.superhelt.wow.om.Raid;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.time.LocalDate;
@@ -19,35 +20,45 @@ public class EventViewer extends AbstractHandler {
 
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE;
 
-    private RaidDao raidDao;
-    private PlayerDao playerDao;
+    private static final Template raidHeader = Template.compile("<th><a href=\"?raid={raid}\">{raid}</a></th>");
+    private static final Template playerCell = Template.compile("<tr><td><a href=\"?player={name}\">{!player}</a></td>");
+    private static final Template playerHeader = Template.compile("<table><tr><th>{!player}</th></tr>");
 
-    public EventViewer(RaidDao raidDao, PlayerDao playerDao) {
-        this.raidDao = raidDao;
+    private final RaidRepository raidRepository;
+    private final PlayerDao playerDao;
+
+    public EventViewer(RaidRepository raidRepository, PlayerDao playerDao) {
+        this.raidRepository = raidRepository;
         this.playerDao = playerDao;
     }
 
-    public void handle(HttpServletRequest request, PrintWriter writer) throws IOException {
+    public void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        PrintWriter writer = response.getWriter();
         super.handle(request, writer);
         String raid = request.getParameter("raid");
         String player = request.getParameter("player");
 
         if(raid==null && player==null) {
+            writer.flush();
             printAllEvents(writer);
         } else if(raid!=null) {
             LocalDate raidStart = LocalDate.parse(request.getParameter("raid"), dateFormatter);
-            printRaid(writer, raidDao.getRaid(raidStart));
+            Raid selected = raidRepository.getRaid(raidStart);
+            writer.flush();
+            printRaid(writer, selected);
         } else if(player!=null) {
-            printPlayer(writer, playerDao.getByName(player));
+            Player selected = requirePlayer(playerDao, player);
+            writer.flush();
+            printPlayer(writer, selected);
         }
     }
 
     public void printPlayer(PrintWriter writer, Player player) {
-        writer.format("<table><tr><th>%s</th></tr>", player.classString());
+        playerHeader.slot(writer, 0, player).end(writer);
 
-        raidDao.getRaids().stream().filter(r->r.events.stream().anyMatch(e->e.player.equals(player))).forEach(r-> {
+        raidRepository.getRaids().stream().filter(r->!r.getEvents(player).isEmpty()).forEach(r-> {
                 StringBuilder content = new StringBuilder();
-                r.events.stream().filter(e->e.player.equals(player)).forEach(e->content.append(e.type).append(": ").append(e.comment));
+                r.getEvents(player).forEach(e->content.append(e.type).append(": ").append(Html.escape(e.comment)));
 
                 writer.format("<tr><td>%s</td><td>%s</td></tr>", r.start, content);
             }
@@ -62,37 +73,39 @@ public class EventViewer extends AbstractHandler {
 
         players.forEach(p->{
             StringBuilder content = new StringBuilder();
-            raid.events.stream().filter(e->e.player.equals(p)).forEach(e->content.append(e.type).append(": ").append(e.comment));
+            raid.getEvents(p).forEach(e->content.append(e.type).append(": ").append(Html.escape(e.comment)));
 
-            writer.format("<tr><td class=\"%s\">%s</td><td>%s</td></tr>", p.playerClass.toString().toLowerCase(), p.name, content);
+            writer.format("<tr><td class=\"%s\">%s</td><td>%s</td></tr>", p.playerClass.toString().toLowerCase(), Html.escape(p.name), content);
         });
         writer.println("</table>");
     }
 
     public void printAllEvents(PrintWriter writer) {
-        List<Raid> raids = raidDao.getRaids().stream().filter(r->r.start.isAfter(LocalDate.now().minus(2, ChronoUnit.WEEKS))).collect(Collectors.toList());
+        List<Raid> raids = raidRepository.getRaids().stream().filter(r->r.start.isAfter(LocalDate.now().minus(2, ChronoUnit.WEEKS))).collect(Collectors.toList());
         List<Player> players = playerDao.getActivePlayers();
         writer.print("<table><tr><th>Player</th>");
         for(Raid raid : raids) {
-            writer.format("<th><a href=\"?raid=%s\">%s</a></th>", dateFormatter.format(raid.start), dateFormatter.format(raid.start));
+            String start = dateFormatter.format(raid.start);
+            raidHeader.slot(writer, 0, start).slot(writer, 1, start).end(writer);
         }
         writer.println("</tr>");
         for(Player player : players) {
-            writer.format("<tr><td><a href=\"?player=%s\">%s</a></td>", player.name, player.classString());
+            playerCell.slot(writer, 0, player.name).slot(writer, 1, player).end(writer);
 
             for(Raid raid : raids) {
-                StringBuilder classes = new StringBuilder();
-
-                List<Event.EventType> types = raid.events.stream()
-                        .filter(e -> e.player.equals(player))
-                        .map(e -> e.type)
-                        .distinct().collect(Collectors.toList());
-
-                types.forEach(t->classes.append(t).append(" "));
-
-                writer.format("<th class=\"%s\"></th>", classes);
+                writer.write("<th class=\"");
+                int written = 0;
+                for(Event event : raid.getEvents(player)) {
+                    int bit = 1 << event.type.ordinal();
+                    if((written & bit) == 0) {
+                        writer.write(event.type.name());
+                        writer.write(' ');
+                        written |= bit;
+                    }
+                }
+                writer.write("\"></th>");
             }
-            writer.format("</tr>");
+            writer.write("</tr>");
         }
 
         writer.print("</table>");
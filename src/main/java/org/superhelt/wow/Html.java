@@ -0,0 +1,75 @@
+package org.superhelt.wow;
+
+import org.superhelt.wow.om.Player;
+
+import java.io.PrintWriter;
+import java.util.Locale;
+
+public final class Html {
+
+    private static final String[] classSpans = new String[Player.PlayerClass.values().length];
+
+    static {
+        for(Player.PlayerClass playerClass : Player.PlayerClass.values()) {
+            classSpans[playerClass.ordinal()] = "<span class=\"" + playerClass.name().toLowerCase(Locale.ROOT) + "\">";
+        }
+    }
+
+    private Html() {
+    }
+
+    /**
+     * Writes the player's escaped name in a span styled by the player class.
+     */
+    public static void classString(PrintWriter writer, Player player) {
+        writer.write(classSpans[player.playerClass.ordinal()]);
+        escape(writer, player.name);
+        writer.write("</span>");
+    }
+
+    public static String escape(String text) {
+        if(text == null) {
+            return "";
+        }
+        StringBuilder sb = null;
+        for(int i = 0; i < text.length(); i++) {
+            String replacement = replacement(text.charAt(i));
+            if(replacement != null) {
+                if(sb == null) {
+                    sb = new StringBuilder(text.length() + 16).append(text, 0, i);
+                }
+                sb.append(replacement);
+            } else if(sb != null) {
+                sb.append(text.charAt(i));
+            }
+        }
+        return sb == null ? text : sb.toString();
+    }
+
+    public static void escape(PrintWriter writer, String text) {
+        if(text == null) {
+            return;
+        }
+        int start = 0;
+        for(int i = 0; i < text.length(); i++) {
+            String replacement = replacement(text.charAt(i));
+            if(replacement != null) {
+                writer.write(text, start, i - start);
+                writer.write(replacement);
+                start = i + 1;
+            }
+        }
+        writer.write(text, start, text.length() - start);
+    }
+
+    private static String replacement(char c) {
+        switch (c) {
+            case '<': return "&lt;";
+            case '>': return "&gt;";
+            case '&': return "&amp;";
+            case '"': return "&quot;";
+            case '\'': return "&#39;";
+            default: return null;
+        }
+    }
+}
@@ -3,112 +3,141 @@ package org.superhelt.wow;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.eclipse.jetty.server.handler.gzip.GzipHandler;
 import org.flywaydb.core.Flyway;
+import org.superhelt.wow.api.JsonApi;
+import org.superhelt.wow.api.RaidEvents;
+import org.superhelt.wow.dao.ConnectionPool;
+import org.superhelt.wow.dao.DatabaseWriter;
 import org.superhelt.wow.dao.PlayerDao;
 import org.superhelt.wow.dao.RaidDao;
+import org.superhelt.wow.dao.RaidRepository;
+import org.superhelt.wow.stats.AttendanceStats;
+import org.superhelt.wow.stats.BenchStats;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
-import java.sql.Connection;
-import java.sql.DriverManager;
+import java.time.LocalDate;
+import java.util.zip.Deflater;
 
 public class HttpHandler extends AbstractHandler {
 
-    private RaidDao raidDao;
-    private PlayerDao playerDao;
-
-    public HttpHandler(RaidDao raidDao, PlayerDao playerDao) {
-        this.raidDao = raidDao;
-        this.playerDao = playerDao;
+    private final RaidRepository raidRepository;
+    private final StaticResources staticResources;
+    private final Routes routes;
+    private final int responseBufferSize;
+
+    public HttpHandler(RaidRepository raidRepository, PlayerDao playerDao, AttendanceStats attendanceStats, BenchStats benchStats, RaidPageCache raidPageCache, StaticResources staticResources, RaidEvents raidEvents, int responseBufferSize) {
+        this.raidRepository = raidRepository;
+        this.responseBufferSize = responseBufferSize;
+        this.staticResources = staticResources;
+        this.routes = new Routes(new Route("/", "ANE Raid Setup", new RaidViewer(raidRepository, playerDao, raidPageCache), true, "GET"))
+                .add(new Route("/planRaid", "ANE Raid Planner", new RaidPlanner(raidRepository, playerDao, benchStats), true, "GET", "POST"))
+                .add(new Route("/showEvents", "ANE Player Notes", new EventViewer(raidRepository, playerDao), true, "GET"))
+                .add(new Route("/signup", "ANE Raid Signup", new RaidInviter(raidRepository, playerDao, attendanceStats), true, "GET", "POST"))
+                .add(new Route("/player", "ANE Raid Players", new PlayerAdmin(raidRepository, playerDao), true, "GET", "POST"));
+
+        JsonApi api = new JsonApi(raidRepository, playerDao, attendanceStats);
+        routes.add(Route.json("/api/v1/raids", api::raids))
+                .add(Route.json("/api/v1/players", api::players))
+                .add(Route.json("/api/v1/stats", api::stats))
+                .add(Route.stream("/api/v1/events", raidEvents::subscribe));
     }
 
     @Override
     public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
         baseRequest.setHandled(true);
-        if(request.getRequestURI().endsWith(".css")) {
-            serveCss(request, response);
-        } else {
-            EventViewer eventViewer = new EventViewer(raidDao, playerDao);
-            RaidPlanner raidPlanner = new RaidPlanner(raidDao, playerDao);
-            RaidInviter raidInviter = new RaidInviter(raidDao, playerDao);
-            RaidViewer raidViewer = new RaidViewer(raidDao, playerDao);
-            PlayerAdmin playerAdmin = new PlayerAdmin(playerDao);
+        if(staticResources.isAsset(request.getRequestURI())) {
+            staticResources.serve(request, response);
+            return;
+        }
 
+        Route route = routes.get(request.getRequestURI());
+        if(!route.allows(request)) {
+            response.setStatus(HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+        } else if(route.isCacheable(request) && isNotModified(request, response)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        } else if(!route.framed) {
+            response.setBufferSize(responseBufferSize);
+            route.handler.handle(request, response);
+        } else {
             response.setContentType("text/html;charset=utf-8");
             response.setStatus(HttpServletResponse.SC_OK);
-
-            PrintWriter writer = response.getWriter();
-
-            String title;
-            switch(request.getRequestURI()) {
-                case "/planRaid":
-                    title = "ANE Raid Planner";
-                    break;
-                case "/showEvents":
-                    title = "ANE Player Notes";
-                    break;
-                case "/signup":
-                    title = "ANE Raid Signup";
-                    break;
-                case "/player":
-                    title = "ANE Raid Players";
-                    break;
-                default:
-                    title = "ANE Raid Setup";
+            response.setBufferSize(responseBufferSize);
+
+            PageResponse page = new PageResponse(response);
+            PrintWriter writer = page.getWriter();
+            writer.format("<!DOCTYPE html><html><head><link rel=\"stylesheet\" type=\"text/css\" href=\"%s\"/><title>%s</title></head><body>", staticResources.link("/styles.css"), route.title);
+            try {
+                route.handler.handle(request, page);
+            } catch (IllegalArgumentException e) {
+                if(response.isCommitted()) {
+                    throw e;
+                }
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
             }
-            writer.format("<!DOCTYPE html><html><head><link rel=\"stylesheet\" type=\"text/css\" href=\"styles.css\"/><title>%s</title></head><body>", title);
-
-            switch (request.getRequestURI()) {
-                case "/planRaid":
-                    raidPlanner.handle(request, response);
-                    break;
-                case "/showEvents":
-                    eventViewer.handle(request, writer);
-                    break;
-                case "/signup":
-                    raidInviter.handle(request, response);
-                    break;
-                case "/player":
-                    playerAdmin.handle(request, response);
-                    break;
-                default:
-                    raidViewer.handle(request, response);
-            }
-
             writer.print("</body></html>");
+            writer.flush();
         }
     }
 
-    private void serveCss(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        String fileName = request.getRequestURI();
-        InputStream is = getClass().getResourceAsStream(fileName);
+    private boolean isNotModified(HttpServletRequest request, HttpServletResponse response) {
+        String etag = String.format("\"%d-%d\"", raidRepository.getVersion(), LocalDate.now().toEpochDay());
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", raidRepository.getLastModified());
+        response.setHeader("Cache-Control", "no-cache");
 
-        if(is!=null) {
-            response.setContentType("text/css");
-            response.setStatus(HttpServletResponse.SC_OK);
-            int next;
-            while ((next = is.read()) != -1) {
-                response.getWriter().write(next);
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if(ifNoneMatch == null) {
+            return false;
+        }
+        for(String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if(candidate.equals(etag) || candidate.equals("W/"+etag) || candidate.equals("*")) {
+                return true;
             }
-        } else {
-            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
         }
+        return false;
     }
 
     public static void main(String[] args) throws Exception {
         Server server = new Server(8080);
 
-        Connection connection = DriverManager.getConnection("jdbc:sqlite:raidplanner.db");
+        ConnectionPool dataSource = new ConnectionPool("jdbc:sqlite:raidplanner.db", 8);
         Flyway flyway = new Flyway();
-        flyway.setDataSource("jdbc:sqlite:raidplanner.db", "", "");
+        flyway.setDataSource(dataSource);
         flyway.migrate();
 
 
-        server.setHandler(new HttpHandler(new RaidDao(connection), new PlayerDao(connection)));
+        DatabaseWriter databaseWriter = new DatabaseWriter(dataSource, 1000, 100);
+        PlayerDao playerDao = new PlayerDao(dataSource, databaseWriter);
+        RaidRepository raidRepository = new RaidRepository(new RaidDao(dataSource, databaseWriter, playerDao), playerDao);
+        AttendanceStats attendanceStats = new AttendanceStats();
+        raidRepository.addListener(attendanceStats);
+        BenchStats benchStats = new BenchStats();
+        raidRepository.addListener(benchStats);
+        RaidPageCache raidPageCache = new RaidPageCache(50);
+        raidRepository.addListener(raidPageCache);
+        RaidEvents raidEvents = new RaidEvents(raidRepository);
+        raidRepository.addListener(raidEvents);
+
+        StaticResources staticResources = new StaticResources("/styles.css");
+
+        GzipHandler gzipHandler = new GzipHandler();
+        gzipHandler.setIncludedMethods("GET", "POST");
+        gzipHandler.setMinGzipSize(Integer.getInteger("raidplanner.gzip.minSize", 1024));
+        gzipHandler.setCompressionLevel(Integer.getInteger("raidplanner.gzip.level", Deflater.DEFAULT_COMPRESSION));
+        gzipHandler.setSyncFlush(true);
+        gzipHandler.addExcludedMimeTypes("text/event-stream");
+        gzipHandler.addExcludedPaths(staticResources.getPaths());
+        gzipHandler.setHandler(new HttpHandler(raidRepository, playerDao, attendanceStats, benchStats, raidPageCache, staticResources, raidEvents,
+                Integer.getInteger("raidplanner.responseBufferSize", 16 * 1024)));
+
+        server.setHandler(gzipHandler);
 
         server.start();
         server.join();
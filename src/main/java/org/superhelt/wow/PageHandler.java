@@ -0,0 +1,14 @@
+package org.superhelt.wow;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Renders the body of a page. One instance serves every request for its route, so implementations must not keep
+ * per-request state.
+ */
+public interface PageHandler {
+
+    void handle(HttpServletRequest request, HttpServletResponse response) throws IOException;
+}
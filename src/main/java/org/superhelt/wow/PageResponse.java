@@ -0,0 +1,33 @@
+package org.superhelt.wow;
+
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Response for framed pages. The writer encodes UTF-8 straight onto the output stream, so a handler may flush the
+ * writer and then write pre-encoded bytes to the output stream of the same response.
+ */
+public class PageResponse extends HttpServletResponseWrapper {
+
+    private final PrintWriter writer;
+
+    public PageResponse(HttpServletResponse response) throws IOException {
+        super(response);
+        this.writer = new PrintWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public PrintWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        writer.flush();
+        super.flushBuffer();
+    }
+}
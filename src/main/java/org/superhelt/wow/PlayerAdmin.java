@@ -2,23 +2,26 @@ package org.superhelt.wow;
 
 import org.omg.CORBA.UNKNOWN;
 import org.superhelt.wow.dao.PlayerDao;
+import org.superhelt.wow.dao.RaidRepository;
 import org.superhelt.wow.om.Player;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class PlayerAdmin extends AbstractHandler {
+    private final RaidRepository raidRepository;
     private final PlayerDao playerDao;
 
-    public PlayerAdmin(PlayerDao playerDao) {
-
+    public PlayerAdmin(RaidRepository raidRepository, PlayerDao playerDao) {
+        this.raidRepository = raidRepository;
         this.playerDao = playerDao;
     }
 
@@ -26,21 +29,18 @@ public class PlayerAdmin extends AbstractHandler {
         super.handle(request, response.getWriter());
 
         String action = request.getParameter("action");
+        Player player = action != null && (action.equals("new") || action.equals("edit")) ? deserializePlayer(request) : null;
+        response.getWriter().flush();
+
         if (action != null && action.equals("new")) {
-            newPlayer(request);
+            await(raidRepository.addPlayer(player), response.getWriter());
         } else if(action!=null && action.equals("edit")) {
-            updatePlayer(request);
+            await(raidRepository.updatePlayer(player), response.getWriter());
         }
         listNewPlayer(response.getWriter());
         listPlayers(response.getWriter());
     }
 
-    private void newPlayer(HttpServletRequest request) {
-        Player player = deserializePlayer(request);
-
-        playerDao.addPlayer(player);
-    }
-
     private void listNewPlayer(PrintWriter writer) {
         writer.print("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"new\">\n");
         writer.print("<table><tr><th>Name</th><th>Class</th><th>Tank</th><th>Healer</th><th>Melee</th><th>Ranged</th></tr>\n");
@@ -57,13 +57,8 @@ public class PlayerAdmin extends AbstractHandler {
         writer.print("</table></form>\n");
     }
 
-    private void updatePlayer(HttpServletRequest request) {
-        String originalName = request.getParameter("originalName");
-        Player updatedPlayer = deserializePlayer(request);
-        playerDao.updatePlayer(originalName, updatedPlayer);
-    }
-
     private Player deserializePlayer(HttpServletRequest request) {
+        int id = request.getParameter("id") != null ? Integer.parseInt(request.getParameter("id")) : 0;
         String name = request.getParameter("name");
         String playerClass = request.getParameter("class");
         String tank = request.getParameter("Tank");
@@ -72,13 +67,13 @@ public class PlayerAdmin extends AbstractHandler {
         String ranged = request.getParameter("Ranged");
         boolean active = request.getParameter("active")!=null;
 
-        List<Player.Role> roles = new ArrayList<>();
+        Set<Player.Role> roles = EnumSet.noneOf(Player.Role.class);
         if(tank!=null) roles.add(Player.Role.Tank);
         if(healer!=null) roles.add(Player.Role.Healer);
         if(melee!=null) roles.add(Player.Role.Melee);
         if(ranged!=null) roles.add(Player.Role.Ranged);
 
-        return new Player(name, Player.PlayerClass.valueOf(playerClass), roles, active);
+        return new Player(id, name, Player.PlayerClass.valueOf(playerClass), roles, active);
     }
 
     private void listPlayers(PrintWriter writer) {
@@ -119,7 +114,7 @@ public class PlayerAdmin extends AbstractHandler {
             }
 
             writer.print("<td><input type=\"submit\" value=\"Edit\">");
-            writer.format("<input type=\"hidden\" name=\"originalName\" value=\"%s\"/>", player.name);
+            writer.format("<input type=\"hidden\" name=\"id\" value=\"%d\"/>", player.id);
             writer.print("<input type=\"hidden\" name=\"action\" value=\"edit\"/></form></td></tr>\n");
         });
         writer.println("</table>");
@@ -1,8 +1,9 @@
 package org.superhelt.wow;
 
 import org.superhelt.wow.dao.PlayerDao;
-import org.superhelt.wow.dao.RaidDao;
+import org.superhelt.wow.dao.RaidRepository;
 import org.superhelt.wow.om.*;
+import org.superhelt.wow.stats.AttendanceStats;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -11,9 +12,8 @@ import java.io.PrintWriter;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 public class RaidInviter extends AbstractHandler {
 
@@ -21,12 +21,26 @@ public class RaidInviter extends AbstractHandler {
 
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE;
 
-    private final RaidDao raidDao;
+    private static final Template statRowStart = Template.compile("<tr><td>{!player}</td>");
+    private static final Template statCells = Template.compile("<td class=\"{twoWeeksClass}\">{twoWeeks}</td><td class=\"{monthClass}\">{month}</td><td class=\"{totalClass}\">{total}</td>");
+    private static final Template accepted = Template.compile("{!player} signed up for the raid");
+    private static final Template tentative = Template.compile("{!player} is tentative with the following comment: {comment}");
+    private static final Template declined = Template.compile("{!player} declined the raid with the following comment: {comment}");
+    private static final Template unsignButton = Template.compile("<input type=\"hidden\" name=\"raid\" value=\"{raid}\"/><input type=\"hidden\" name=\"player\" value=\"{name}\"/>" +
+            "<input type=\"hidden\" name=\"action\" value=\"unsign\"><input type=\"submit\" value=\"remove\"></form>");
+    private static final Template raidHeader = Template.compile("<div><h1>{raid}</h1>");
+    private static final Template signupFormStart = Template.compile("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"signup\"><input type=\"hidden\" name=\"raid\" value=\"{raid}\"/>");
+    private static final Template playerCheckbox = Template.compile("<input type=\"checkbox\" name=\"player\" value=\"{name}\">{!player}<br/>");
+    private static final Template option = Template.compile("<option value=\"{value}\">{value}</option>");
+
+    private final RaidRepository raidRepository;
     private final PlayerDao playerDao;
+    private final AttendanceStats attendanceStats;
 
-    public RaidInviter(RaidDao raidDao, PlayerDao playerDao) {
-        this.raidDao = raidDao;
+    public RaidInviter(RaidRepository raidRepository, PlayerDao playerDao, AttendanceStats attendanceStats) {
+        this.raidRepository = raidRepository;
         this.playerDao = playerDao;
+        this.attendanceStats = attendanceStats;
     }
 
     public void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -38,27 +52,37 @@ public class RaidInviter extends AbstractHandler {
             addRaid(request, writer);
         }
 
-        listRaids(writer);
+        listRaids(writer, request);
         if (request.getParameter("raid") != null) {
             LocalDate raidStart = LocalDate.parse(request.getParameter("raid"), dateFormatter);
-            Raid raid = raidDao.getRaid(raidStart);
+            Raid raid = raidRepository.getRaid(raidStart);
 
+            Consumer<PrintWriter> change = null;
             if (action != null) {
                 switch (action) {
                     case "signup":
-                        signup(request, writer, raid);
+                        change = signup(request, raid);
                         break;
                     case "unsign":
-                        unsign(request, writer, raid);
+                        change = unsign(request, raid);
                         break;
                 }
             }
+            writer.flush();
 
-            raid = raidDao.getRaid(raidStart);
+            if (change != null) {
+                change.accept(writer);
+            }
+
+            long version = raidRepository.getVersion(raidStart);
+            raid = raidRepository.getRaid(raidStart);
 
             printSignupForm(writer, raid);
+            writer.flush();
             printSignups(writer, raid);
+            printLiveUpdates(writer, request, raidStart, null, version);
         } else {
+            writer.flush();
             printSignupStats(writer);
         }
     }
@@ -66,61 +90,19 @@ public class RaidInviter extends AbstractHandler {
     private void printSignupStats(PrintWriter writer) {
         writer.println("<h1>Stats</h1>");
 
-        Map<Player, PlayerStat> tentativeMap = new HashMap<>();
-        Map<Player, PlayerStat> declinedMap = new HashMap<>();
-        Map<Player, PlayerStat> unknownMap = new HashMap<>();
-        Map<Player, PlayerStat> noShowMap = new HashMap<>();
-        Map<Player, PlayerStat> lateMap = new HashMap<>();
-
         List<Player> players = playerDao.getActivePlayers();
-        List<Raid> raids = raidDao.getRaids();
-        raids.sort(Comparator.comparing(r -> r.start));
-        for (Player player : players) {
-            PlayerStat tenative = tentativeMap.computeIfAbsent(player, (k) -> new PlayerStat(k));
-            PlayerStat declined = declinedMap.computeIfAbsent(player, (k) -> new PlayerStat(k));
-            PlayerStat unknown = unknownMap.computeIfAbsent(player, (k) -> new PlayerStat(k));
-            PlayerStat noShow = noShowMap.computeIfAbsent(player, (k) -> new PlayerStat(k));
-            PlayerStat late = lateMap.computeIfAbsent(player, (k) -> new PlayerStat(k));
-            boolean alreadyJoined = false;
-            for (Raid raid : raids) {
-                if (alreadyJoined || raid.getSignupStatus(player).isPresent()) {
-
-                    Optional<Signup.Type> type = raid.getSignupStatus(player);
-                    if (!type.isPresent()) { // Unknown - did not sign up for the raid
-                        incrementStats(unknown, raid);
-                    } else if (type.get().equals(Signup.Type.TENTATIVE)) {
-                        incrementStats(tenative, raid);
-                    } else if (type.get().equals(Signup.Type.DECLINED)) {
-                        incrementStats(declined, raid);
-                    }
-                    alreadyJoined = true;
-                }
-                List<Event> events = raid.events.stream().filter(e -> e.player.equals(player)).collect(Collectors.toList());
-
-                for (Event event : events) {
-                    switch (event.type) {
-                        case NOSHOW:
-                            incrementStats(noShow, raid);
-                            break;
-                        case LATE:
-                            incrementStats(late, raid);
-                            break;
-                    }
-                }
-            }
-        }
 
         writer.println("<table class=\"statTable\"><tr><th>Player</th><th colspan=\"3\">Tentative</th><th colspan=\"3\">Declined</th>");
         writer.println("<th colspan=\"3\">Unknown</th><th colspan=\"3\">Noshow</th><th colspan=\"3\">Late</th></tr>");
 
         printHeaders(writer, 5);
         for (Player player : players) {
-            writer.format("<tr><td>%s</td>", player.classString());
-            printStats(writer, tentativeMap.get(player));
-            printStats(writer, declinedMap.get(player));
-            printStats(writer, unknownMap.get(player));
-            printStats(writer, noShowMap.get(player));
-            printStats(writer, lateMap.get(player));
+            statRowStart.slot(writer, 0, player).end(writer);
+            printStats(writer, attendanceStats.getStat(player, AttendanceStats.Category.TENTATIVE));
+            printStats(writer, attendanceStats.getStat(player, AttendanceStats.Category.DECLINED));
+            printStats(writer, attendanceStats.getStat(player, AttendanceStats.Category.UNKNOWN));
+            printStats(writer, attendanceStats.getStat(player, AttendanceStats.Category.NOSHOW));
+            printStats(writer, attendanceStats.getStat(player, AttendanceStats.Category.LATE));
             writer.println("</tr>");
         }
         writer.println("</table>");
@@ -136,13 +118,10 @@ public class RaidInviter extends AbstractHandler {
     }
 
     private void printStats(PrintWriter writer, PlayerStat stat) {
-        String twoWeekClass = getCellClass(stat.getTwoWeeks(), 1, 4);
-        String monthClass = getCellClass(stat.getMonth(), 3, 8);
-        String totalClass = getCellClass(stat.getTotal(), 10, 20);
-        writer.format("<td class=\"%s\">%d</td><td class=\"%s\">%d</td><td class=\"%s\">%d</td>",
-                twoWeekClass, stat.getTwoWeeks(),
-                monthClass, stat.getMonth(),
-                totalClass, stat.getTotal());
+        statCells.slot(writer, 0, getCellClass(stat.getTwoWeeks(), 1, 4)).slot(writer, 1, stat.getTwoWeeks())
+                .slot(writer, 2, getCellClass(stat.getMonth(), 3, 8)).slot(writer, 3, stat.getMonth())
+                .slot(writer, 4, getCellClass(stat.getTotal(), 10, 20)).slot(writer, 5, stat.getTotal())
+                .end(writer);
     }
 
     private String getCellClass(int num, int yellowThreshold, int redThreshold) {
@@ -151,20 +130,8 @@ public class RaidInviter extends AbstractHandler {
         return "green";
     }
 
-    private void incrementStats(PlayerStat stat, Raid raid) {
-        stat.incrementTotal();
-        if (raid.start.equals(LocalDate.now())) {
-            stat.incrementToday();
-        }
-        if (raid.start.isAfter(LocalDate.now().minus(2, ChronoUnit.WEEKS))) {
-            stat.incrementTwoWeeks();
-        }
-        if(raid.start.isAfter(LocalDate.now().minus(1, ChronoUnit.MONTHS))) {
-            stat.incrementMonth();
-        }
-    }
-
     private void printSignups(PrintWriter writer, Raid raid) {
+        String raidDate = dateFormatter.format(raid.start);
         writer.println("<div><h1>Signups</h1><ul>");
         for (Signup signup : raid.signups) {
             writer.println("<li>");
@@ -173,18 +140,17 @@ public class RaidInviter extends AbstractHandler {
             }
             switch (signup.type) {
                 case ACCEPTED:
-                    writer.format("%s signed up for the raid", signup.player.classString());
+                    accepted.slot(writer, 0, signup.player).end(writer);
                     break;
                 case TENTATIVE:
-                    writer.format("%s is tentative with the following comment: %s", signup.player.classString(), signup.comment);
+                    tentative.slot(writer, 0, signup.player).slot(writer, 1, signup.comment).end(writer);
                     break;
                 case DECLINED:
-                    writer.format("%s declined the raid with the following comment: %s", signup.player.classString(), signup.comment);
+                    declined.slot(writer, 0, signup.player).slot(writer, 1, signup.comment).end(writer);
                     break;
             }
             if (!raid.isFinalized()) {
-                writer.format("<input type=\"hidden\" name=\"raid\" value=\"%s\"/><input type=\"hidden\" name=\"player\" value=\"%s\"/>" +
-                        "<input type=\"hidden\" name=\"action\" value=\"unsign\"><input type=\"submit\" value=\"remove\"></form>", dateFormatter.format(raid.start), signup.player.name);
+                unsignButton.slot(writer, 0, raidDate).slot(writer, 1, signup.player.name).end(writer);
             }
             writer.print("</li>");
         }
@@ -192,34 +158,38 @@ public class RaidInviter extends AbstractHandler {
         writer.println("</ul></div>");
     }
 
-    private void signup(HttpServletRequest request, PrintWriter writer, Raid raid) {
-        String[] players = request.getParameterValues("player");
-        for (String playerName : players) {
-            Player player = playerDao.getByName(playerName);
-            Signup.Type type = Signup.Type.valueOf(request.getParameter("type"));
-            String comment = request.getParameter("comment");
-
-            if (type != Signup.Type.ACCEPTED && (comment == null || comment.isEmpty())) {
-                writer.format("<h2>Signups of type %s require a comment</h2>", type);
-            } else {
-                Signup signup = new Signup(LocalDateTime.now(), player, type, comment);
-                raidDao.addSignup(raid, signup);
-            }
+    private Consumer<PrintWriter> signup(HttpServletRequest request, Raid raid) {
+        Signup.Type type = Signup.Type.valueOf(request.getParameter("type"));
+        String comment = request.getParameter("comment");
+        String[] playerNames = request.getParameterValues("player");
+
+        if (type != Signup.Type.ACCEPTED && (comment == null || comment.isEmpty())) {
+            return writer -> writer.format("<h2>Signups of type %s require a comment</h2>", type);
+        }
+        if (playerNames == null) {
+            return writer -> writer.println("<h2>Choose the players to sign up</h2>");
         }
-    }
 
-    private void unsign(HttpServletRequest request, PrintWriter writer, Raid raid) {
-        String player = request.getParameter("player");
+        LocalDateTime time = LocalDateTime.now();
+        List<Signup> signups = new ArrayList<>();
+        for (String playerName : playerNames) {
+            signups.add(new Signup(time, requirePlayer(playerDao, playerName), type, comment));
+        }
+        return writer -> await(raidRepository.addSignups(raid, signups), writer);
+    }
 
-        raidDao.removeSignup(raid, player);
+    private Consumer<PrintWriter> unsign(HttpServletRequest request, Raid raid) {
+        Player player = requirePlayer(playerDao, request.getParameter("player"));
 
+        return writer -> await(raidRepository.removeSignup(raid, player), writer);
     }
 
     private void printSignupForm(PrintWriter writer, Raid raid) {
-        writer.format("<div><h1>%s</h1>", dateFormatter.format(raid.start));
+        String raidDate = dateFormatter.format(raid.start);
+        raidHeader.slot(writer, 0, raidDate).end(writer);
 
         if (raid.isFinalized()) {
-            writer.format("<h2>Raid is finalized</h2>");
+            writer.print("<h2>Raid is finalized</h2>");
         } else {
             writer.println("<script language=\"JavaScript\">function toggle(source) {\n" +
                     "  checkboxes = document.getElementsByName('player');\n" +
@@ -228,16 +198,16 @@ public class RaidInviter extends AbstractHandler {
                     "  }\n" +
                     "}" +
                     "</script>");
-            writer.format("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"signup\"><input type=\"hidden\" name=\"raid\" value=\"%s\"/>", raid.start);
+            signupFormStart.slot(writer, 0, raidDate).end(writer);
             writer.println("<input type=\"checkbox\" onClick=\"toggle(this)\"/>Toggle all<br/>");
             for (Player player : playerDao.getActivePlayers()) {
-                if (!raid.signups.stream().anyMatch(s -> s.player.name.equals(player.name))) {
-                    writer.format("<input type=\"checkbox\" name=\"player\" value=\"%s\">%s<br/>", player.name, player.classString());
+                if (!raid.isSignedUp(player)) {
+                    playerCheckbox.slot(writer, 0, player.name).slot(writer, 1, player).end(writer);
                 }
             }
             writer.println("<select name=\"type\">");
             for (Signup.Type type : Signup.Type.values()) {
-                writer.format("<option value=\"%s\">%s</option>", type, type);
+                option.slot(writer, 0, type).slot(writer, 1, type).end(writer);
             }
             writer.println("</select><input type=\"text\" name=\"comment\" maxlength=\"200\" placeholder=\"comment if not accepted\"/>");
             writer.println("<input type=\"submit\"></form>");
@@ -245,22 +215,22 @@ public class RaidInviter extends AbstractHandler {
         writer.println("</div>");
     }
 
-    public void listRaids(PrintWriter writer) {
-        List<Raid> raids = raidDao.getRaids();
+    public void listRaids(PrintWriter writer, HttpServletRequest request) {
+        int offset = raidOffset(request);
+        List<RaidSummary> raids = raidRepository.getRaidSummaries(offset, RAIDS_PER_PAGE + 1);
         writer.println("<div><h1>Raids</h1>");
         writer.format("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"addRaid\"/><input type=\"text\" name=\"time\" value=\"%s\"/><br/><input type=\"submit\"/></form>", df.format(LocalDate.now()));
-        raids.forEach(r -> writer.format("<a href=\"?raid=%s\">%s</a><br/>\n", r.start, r.start));
+        printRaidLinks(writer, request, raids, offset);
         writer.println("</div>");
     }
 
     private void addRaid(HttpServletRequest request, PrintWriter writer) {
         LocalDate date = LocalDate.parse(request.getParameter("time"), df);
-        List<Raid> raids = raidDao.getRaids();
-        if (raids.stream().anyMatch(r -> r.start.isEqual(date))) {
+        if (raidRepository.raidExists(date)) {
             writer.format("<h2>Raid at %s already exists</h2>", df.format(date));
         } else {
             writer.format("<h2>Adding raid: %s</h2>", df.format(date));
-            raidDao.addRaid(new Raid(date));
+            await(raidRepository.addRaid(new Raid(date)), writer);
         }
     }
 }
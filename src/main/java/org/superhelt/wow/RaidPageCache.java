@@ -0,0 +1,71 @@
+package org.superhelt.wow;
+
+import org.superhelt.wow.dao.RaidListener;
+import org.superhelt.wow.om.Raid;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Least recently used cache of the rendered roster of finalized raids, kept as UTF-8 bytes ready to be written to the
+ * response. Pages remember the raid snapshot they were rendered from and are only served for that same snapshot, so a
+ * page rendered while the raid was being reopened is never served afterwards. A raid is dropped whenever it changes,
+ * and everything is dropped when the raids are reloaded after a player edit.
+ */
+public class RaidPageCache implements RaidListener {
+
+    private final Map<LocalDate, Page> pages;
+
+    public RaidPageCache(int maxSize) {
+        this.pages = new LinkedHashMap<LocalDate, Page>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, Page> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    public byte[] get(Raid raid, Function<Raid, byte[]> renderer) {
+        if(!raid.isFinalized()) {
+            return renderer.apply(raid);
+        }
+        synchronized (pages) {
+            Page page = pages.get(raid.start);
+            if(page != null && page.raid == raid) {
+                return page.bytes;
+            }
+        }
+        byte[] bytes = renderer.apply(raid);
+        synchronized (pages) {
+            pages.put(raid.start, new Page(raid, bytes));
+        }
+        return bytes;
+    }
+
+    @Override
+    public void raidsLoaded(Collection<Raid> raids) {
+        synchronized (pages) {
+            pages.clear();
+        }
+    }
+
+    @Override
+    public void raidChanged(Raid previous, Raid current) {
+        synchronized (pages) {
+            pages.remove(current.start);
+        }
+    }
+
+    private static class Page {
+        final Raid raid;
+        final byte[] bytes;
+
+        Page(Raid raid, byte[] bytes) {
+            this.raid = raid;
+            this.bytes = bytes;
+        }
+    }
+}
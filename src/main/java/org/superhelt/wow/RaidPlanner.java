@@ -1,8 +1,9 @@
 package org.superhelt.wow;
 
 import org.superhelt.wow.dao.PlayerDao;
-import org.superhelt.wow.dao.RaidDao;
+import org.superhelt.wow.dao.RaidRepository;
 import org.superhelt.wow.om.*;
+import org.superhelt.wow.stats.BenchStats;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -12,11 +13,16 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class RaidPlanner extends AbstractHandler {
@@ -24,12 +30,35 @@ public class RaidPlanner extends AbstractHandler {
     private static final DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
     private static final DateTimeFormatter tf = DateTimeFormatter.ISO_TIME;
 
-    private RaidDao raidDao;
-    private PlayerDao playerDao;
-
-    public RaidPlanner(RaidDao raidDao, PlayerDao playerDao) {
-        this.raidDao = raidDao;
+    private static final Template bossHeader = Template.compile("<div><h1>{boss} ({participants})</h1>");
+    private static final Template roleHeader = Template.compile("<h2>{role}</h2>");
+    private static final Template roleHeaderWithCount = Template.compile("<h2>{role} ({players})</h2>");
+    private static final Template removePlayerLink = Template.compile("<a href=\"?raid={raid}&boss={boss}&action=removePlayer&player={name}\">{!player}</a><br/>\n");
+    private static final Template playerLine = Template.compile("{!player}<br/>");
+    private static final Template benchHeader = Template.compile("<h1>Bench ({players})</h1>");
+    private static final Template benchRow = Template.compile("<tr><td>{!player}</td>");
+    private static final Template addPlayerCell = Template.compile("<td><a href=\"?action=addPlayer&raid={raid}&boss={boss}&role={role}&player={player}\">{role}</a></td>");
+    private static final Template rosterFormStart = Template.compile("<h1>Roster</h1><form method=\"post\" action=\"planRaid\"><input type=\"hidden\" name=\"action\" value=\"assignRoster\"/>\n" +
+            "<input type=\"hidden\" name=\"raid\" value=\"{raid}\"/><input type=\"hidden\" name=\"boss\" value=\"{boss}\"/><table><tr><th>Player</th><th>Role</th></tr>\n");
+    private static final Template rosterRow = Template.compile("<tr><td>{!player}</td><td><select name=\"assign\"><option value=\"{boss}:{name}:\">Bench</option>");
+    private static final Template rosterOption = Template.compile("<option value=\"{boss}:{name}:{role}\"{!selected}>{role}</option>");
+    private static final Template option = Template.compile("<option value=\"{value}\">{value}</option>");
+    private static final Template raidInput = Template.compile("<input type=\"hidden\" name=\"raid\" value=\"{raid}\"/>");
+    private static final Template eventLine = Template.compile("<ul>{!player} {type}: {comment}");
+    private static final Template removeEventButton = Template.compile("<input type=\"hidden\" name=\"raid\" value=\"{raid}\"/><input type=\"hidden\" name=\"action\" value=\"removeEvent\"/>" +
+            "<input type=\"hidden\" name=\"event\" value=\"{event}\"/><input type=\"submit\" value=\"Remove\"/></form>");
+    private static final Template playerItem = Template.compile("<li>{!player}</li>");
+    private static final Template commentItem = Template.compile("<li>{!player}: {comment}</li>");
+    private static final Template benchStatRow = Template.compile("<tr><td>{!player}</td><td>{today}</td><td>{twoWeeks}</td><td>{month}</td><td>{total}</td></tr>");
+
+    private final RaidRepository raidRepository;
+    private final PlayerDao playerDao;
+    private final BenchStats benchStats;
+
+    public RaidPlanner(RaidRepository raidRepository, PlayerDao playerDao, BenchStats benchStats) {
+        this.raidRepository = raidRepository;
         this.playerDao = playerDao;
+        this.benchStats = benchStats;
     }
 
     public void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
@@ -37,55 +66,90 @@ public class RaidPlanner extends AbstractHandler {
         PrintWriter writer = response.getWriter();
 
         String action = request.getParameter("action");
-        listRaids(writer);
+        listRaids(writer, request);
 
         if (request.getParameter("raid") != null) {
             LocalDate raidStart = LocalDate.parse(request.getParameter("raid"), df);
-            Raid raid = raidDao.getRaid(raidStart);
-
-            String boss = request.getParameter("boss");
+            Raid raid = raidRepository.getRaid(raidStart);
+            Encounter.Boss boss = request.getParameter("boss") == null ? null : Encounter.Boss.valueOf(request.getParameter("boss"));
 
+            Consumer<PrintWriter> change = null;
             if (action != null) {
                 switch (action) {
                     case "deleteEncounter":
-                        deleteEncounter(raid, boss);
+                        change = deleteEncounter(raid, requireEncounter(raid, boss));
                         boss = null;
                         break;
                     case "addEncounter":
-                        addEncounter(request, raid);
+                        change = addEncounter(raid, requireBoss(boss));
                         break;
                     case "addPlayer":
-                        addPlayer(request, raid);
+                        change = addPlayer(request, raid, requireEncounter(raid, boss));
                         break;
                     case "removePlayer":
-                        removePlayer(request, raid);
+                        change = removePlayer(request, raid, requireEncounter(raid, boss));
+                        break;
+                    case "assignRoster":
+                        change = assignRoster(request, raid);
+                        break;
+                    case "cloneRoster":
+                        change = cloneRoster(request, raid);
                         break;
                     case "addEvent":
-                        addEvent(request, raid);
+                        change = addEvent(request, raid);
                         break;
                     case "removeEvent":
-                        removeEvent(request, raid);
+                        change = removeEvent(request, raid);
                         break;
                     case "finalize":
-                        finalize(raid);
+                        change = finalize(raid);
                         break;
                     case "reopen":
-                        reopen(raid);
+                        change = reopen(raid);
                         break;
                 }
             }
-            raid = raidDao.getRaid(raidStart);
+            if (boss != null && !"addEncounter".equals(action)) {
+                requireEncounter(raid, boss);
+            }
+            writer.flush();
+
+            if (change != null) {
+                change.accept(writer);
+            }
+            long version = raidRepository.getVersion(raidStart);
+            raid = raidRepository.getRaid(raidStart);
+            if (boss != null && !raid.containsBoss(boss)) {
+                boss = null;
+            }
             planRaid(writer, raid);
+            writer.flush();
 
             if (boss != null) {
-                planBoss(raid, Encounter.Boss.valueOf(boss), writer);
+                planBoss(raid, boss, writer);
+                writer.flush();
             }
 
             showRighDiv(raid, writer);
             if (boss != null) {
-                showPlayerMacro(raid, Encounter.Boss.valueOf(boss), writer);
+                showPlayerMacro(raid, boss, writer);
             }
+            printLiveUpdates(writer, request, raidStart, boss, version);
+        }
+    }
+
+    private Encounter.Boss requireBoss(Encounter.Boss boss) {
+        if (boss == null) {
+            throw new IllegalArgumentException("Missing boss");
         }
+        return boss;
+    }
+
+    private Encounter.Boss requireEncounter(Raid raid, Encounter.Boss boss) {
+        if (!raid.containsBoss(requireBoss(boss))) {
+            throw new IllegalArgumentException("No encounter with boss "+boss+" in raid "+raid.start);
+        }
+        return boss;
     }
 
     private void showRighDiv(Raid raid, PrintWriter writer) {
@@ -102,50 +166,46 @@ public class RaidPlanner extends AbstractHandler {
         writer.println("]])</pre></div>");
     }
 
-    private void removeEvent(HttpServletRequest request, Raid raid) {
+    private Consumer<PrintWriter> removeEvent(HttpServletRequest request, Raid raid) {
         LocalTime time = LocalTime.parse(request.getParameter("event"), tf);
 
-        raidDao.removeEvent(raid, time);
+        return writer -> await(raidRepository.removeEvent(raid, time), writer);
     }
 
-    private void addEvent(HttpServletRequest request, Raid raid) {
-        Player player = playerDao.getByName(request.getParameter("player"));
+    private Consumer<PrintWriter> addEvent(HttpServletRequest request, Raid raid) {
+        Player player = requirePlayer(playerDao, request.getParameter("player"));
         Event.EventType type = Event.EventType.valueOf(request.getParameter("type"));
         String comment = request.getParameter("comment");
 
-        raid.events.add(new Event(LocalTime.now(), player, type, comment));
-
-        raidDao.addEvent(raid, new Event(LocalTime.now(), player, type, comment));
+        return writer -> await(raidRepository.addEvent(raid, new Event(LocalTime.now(), player, type, comment)), writer);
     }
 
     private void showEvents(Raid raid, PrintWriter writer) {
         writer.println("<div>");
 
         List<Player> players = playerDao.getActivePlayers();
+        String raidDate = df.format(raid.start);
 
-        writer.println("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"addEvent\"/>");
+        writer.println("<form method=\"post\" action=\"planRaid\"><input type=\"hidden\" name=\"action\" value=\"addEvent\"/>");
         writer.println("<select name=\"player\">");
-        players.forEach(p -> writer.format("<option value=\"%s\">%s</option>", p.name, p.name));
+        players.forEach(p -> option.slot(writer, 0, p.name).slot(writer, 1, p.name).end(writer));
         writer.print("</select>");
         writer.print("<select name=\"type\">");
         for (Event.EventType eventType : Event.EventType.values()) {
-            writer.format("<option value=\"%s\">%s</option>", eventType, eventType);
+            option.slot(writer, 0, eventType).slot(writer, 1, eventType).end(writer);
         }
         writer.print("<input type=\"text\" name=\"comment\"/>");
-        writer.format("<input type=\"hidden\" name=\"raid\" value=\"%s\"/>", df.format(raid.start));
+        raidInput.slot(writer, 0, raidDate).end(writer);
         writer.print("</select><input type=\"submit\"></form>");
 
         writer.println("<ul>");
         for(Event event : raid.events) {
             if(!raid.isFinalized()) {
-                writer.format("<form method=\"post\">");
+                writer.print("<form method=\"post\" action=\"planRaid\">");
             }
-            writer.format("<ul>%s %s: %s", event.player.classString(), event.type, event.comment);
+            eventLine.slot(writer, 0, event.player).slot(writer, 1, event.type).slot(writer, 2, event.comment).end(writer);
             if(!raid.isFinalized()) {
-                writer.format("<input type=\"hidden\" name=\"raid\" value=\"%s\"/>",  df.format(raid.start));
-                writer.format("<input type=\"hidden\" name=\"action\" value=\"removeEvent\"/>");
-                writer.format("<input type=\"hidden\" name=\"event\" value=\"%s\"/>", tf.format(event.time));
-                writer.format("<input type=\"submit\" value=\"Remove\"/></form>");
+                removeEventButton.slot(writer, 0, raidDate).slot(writer, 1, tf.format(event.time)).end(writer);
             }
             writer.println("</ul>");
         }
@@ -155,110 +215,120 @@ public class RaidPlanner extends AbstractHandler {
 
     private void listAbsentees(Raid raid, PrintWriter writer) {
 
-        if (raid.signups.stream().filter(s -> s.type == Signup.Type.TENTATIVE).count() > 0) {
+        if (!raid.getSignups(Signup.Type.TENTATIVE).isEmpty()) {
             writer.println("<h2>Tentative</h2><ul>");
-            raid.signups.stream().filter(s -> s.type == Signup.Type.TENTATIVE).forEach(s -> writer.format("<li>%s: %s</li>", s.player.classString(), s.comment));
+            raid.getSignups(Signup.Type.TENTATIVE).forEach(s -> commentItem.slot(writer, 0, s.player).slot(writer, 1, s.comment).end(writer));
             writer.println("</ul>");
         }
 
-        if (raid.signups.stream().filter(s -> s.type == Signup.Type.DECLINED).count() > 0) {
+        if (!raid.getSignups(Signup.Type.DECLINED).isEmpty()) {
             writer.println("<h2>Declined</h2><ul>");
-            raid.signups.stream().filter(s -> s.type == Signup.Type.DECLINED).forEach(s -> writer.format("<li>%s: %s</li>", s.player.classString(), s.comment));
+            raid.getSignups(Signup.Type.DECLINED).forEach(s -> commentItem.slot(writer, 0, s.player).slot(writer, 1, s.comment).end(writer));
             writer.println("</ul>");
         }
 
-        List<Player> knownPlayers = raid.signups.stream().map(s -> s.player).distinct().collect(Collectors.toList());
-        if (knownPlayers.size() < playerDao.getActivePlayers().size()) {
+        List<Player> activePlayers = playerDao.getActivePlayers();
+        if (raid.signups.size() < activePlayers.size()) {
             writer.println("<h2>Unknown</h2><ul>");
-            playerDao.getActivePlayers().stream().filter(p -> !knownPlayers.contains(p)).forEach(p -> writer.format("<li>%s</li>", p.classString()));
+            activePlayers.stream().filter(p -> !raid.isSignedUp(p)).forEach(p -> playerItem.slot(writer, 0, p).end(writer));
             writer.println("</ul>");
         }
 
     }
 
     private void listNumberOfBenches(Raid raid, PrintWriter writer) {
-        List<Raid> raids = raidDao.getRaids();
-        List<PlayerStat> playerStats = getBenchedPlayers(raids, raid);
+        List<PlayerStat> playerStats = benchStats.getBenchedPlayers(raid);
         if(playerStats.size()>0) {
             writer.println("<h2>Benched</h2><table class=\"statTable\">");
             writer.println("<tr><th>Player</th><th colspan=\"3\">Benched</th>");
             writer.println("<tr><th><th>Today</th><th>Two weeks</th><th>Month</th><th>Total</th></tr>");
             playerStats.sort(Comparator.comparingInt((PlayerStat a) -> a.getToday()).reversed());
             for(PlayerStat bp : playerStats) {
-                writer.format("<tr><td>%s</td><td>%d</td><td>%d</td><td>%d</td><td>%d</td></tr>", bp.getPlayer().classString(), bp.getToday(), bp.getTwoWeeks(), bp.getMonth(), bp.getTotal());
+                benchStatRow.slot(writer, 0, bp.getPlayer()).slot(writer, 1, bp.getToday()).slot(writer, 2, bp.getTwoWeeks())
+                        .slot(writer, 3, bp.getMonth()).slot(writer, 4, bp.getTotal()).end(writer);
             }
             writer.println("</table");
         }
     }
 
-    private List<PlayerStat> getBenchedPlayers(List<Raid> raids, Raid currentRaid) {
-        List<PlayerStat> playerStats = new ArrayList<>();
-        for(Player player : currentRaid.acceptedPlayers()) {
-            int numBenchedToday = 0;
-            int numBenchedTotal = 0;
-            int numBenchedTwoWeeks = 0;
-            int numBenchedMonth = 0;
-            for(Raid raid : raids) {
-                if(raid.isAccepted(player)) {
-                    for (Encounter encounter : raid.encounters) {
-                        if (!encounter.isParticipating(player)) {
-                            if (raid.start.equals(currentRaid.start)) {
-                                numBenchedToday++;
-                            }
-                            if (raid.start.isAfter(LocalDate.now().minus(2, ChronoUnit.WEEKS))) {
-                                numBenchedTwoWeeks++;
-                            }
-                            if(raid.start.isAfter(LocalDate.now().minus(1, ChronoUnit.MONTHS))) {
-                                numBenchedMonth++;
-                            }
-                            numBenchedTotal++;
-                        }
-                    }
+    private Consumer<PrintWriter> removePlayer(HttpServletRequest request, Raid raid, Encounter.Boss boss) {
+        Player player = requirePlayer(playerDao, request.getParameter("player"));
+
+        return writer -> await(raidRepository.removePlayer(raid, boss, player), writer);
+    }
+
+    private Consumer<PrintWriter> addPlayer(HttpServletRequest request, Raid raid, Encounter.Boss boss) {
+        Player.Role role = Player.Role.valueOf(request.getParameter("role"));
+        Player player = requirePlayer(playerDao, request.getParameter("player"));
+
+        return writer -> await(raidRepository.addPlayer(raid, boss, player, role), writer);
+    }
+
+    private Consumer<PrintWriter> assignRoster(HttpServletRequest request, Raid raid) {
+        Map<Encounter.Boss, Map<Player, Player.Role>> layout = new EnumMap<>(Encounter.Boss.class);
+        String[] assignments = request.getParameterValues("assign");
+        if (assignments != null) {
+            for (String assignment : assignments) {
+                // boss:player:role, with an empty role for the bench
+                String[] parts = assignment.split(":", -1);
+                if (parts.length != 3) {
+                    throw new IllegalArgumentException("Malformed assignment "+assignment);
                 }
-            }
-            if(numBenchedToday>0) {
-                playerStats.add(new PlayerStat(player, numBenchedToday, numBenchedTwoWeeks, numBenchedMonth, numBenchedTotal));
+                Map<Player, Player.Role> roster = layout.computeIfAbsent(requireEncounter(raid, Encounter.Boss.valueOf(parts[0])), b -> new HashMap<>());
+                roster.put(requirePlayer(playerDao, parts[1]), parts[2].isEmpty() ? null : Player.Role.valueOf(parts[2]));
             }
         }
-        return playerStats;
-    }
-
-    private void removePlayer(HttpServletRequest request, Raid raid) {
-        Encounter.Boss boss = Encounter.Boss.valueOf(request.getParameter("boss"));
-        Player player = playerDao.getByName(request.getParameter("player"));
 
-        raidDao.removePlayer(raid, boss, player);
+        return writer -> await(raidRepository.assignPlayers(raid, layout), writer);
     }
 
-    private void addPlayer(HttpServletRequest request, Raid raid) {
-        Encounter.Boss boss = Encounter.Boss.valueOf(request.getParameter("boss"));
-        Player.Role role = Player.Role.valueOf(request.getParameter("role"));
-        Player player = playerDao.getByName(request.getParameter("player"));
+    private Consumer<PrintWriter> cloneRoster(HttpServletRequest request, Raid raid) {
+        String sourceParameter = request.getParameter("source");
+        LocalDate sourceStart;
+        try {
+            sourceStart = sourceParameter == null ? null : LocalDate.parse(sourceParameter, df);
+        } catch (DateTimeParseException e) {
+            sourceStart = null;
+        }
+        if (sourceStart == null || !raidRepository.raidExists(sourceStart)) {
+            return writer -> writer.println("<h2>Choose an existing raid to copy the roster from</h2>");
+        }
+        Raid source = raidRepository.getRaid(sourceStart);
 
-        raidDao.addPlayer(raid, boss, player, role);
+        Set<Player> dropped = new LinkedHashSet<>();
+        for (Encounter encounter : source.encounters) {
+            encounter.getParticipants().stream().filter(p -> !raid.isAccepted(p)).forEach(dropped::add);
+        }
+
+        return writer -> {
+            if (await(raidRepository.cloneRoster(raid, source), writer) && !dropped.isEmpty()) {
+                writer.print("<h2>Not accepted for this raid, left out of the roster:</h2><ul>");
+                dropped.forEach(p -> playerItem.slot(writer, 0, p).end(writer));
+                writer.println("</ul>");
+            }
+        };
     }
 
-    private void addEncounter(HttpServletRequest request, Raid raid) {
-        Encounter.Boss boss = Encounter.Boss.valueOf(request.getParameter("boss"));
-        raidDao.addEncounter(raid, boss);
+    private Consumer<PrintWriter> addEncounter(Raid raid, Encounter.Boss boss) {
+        return writer -> await(raidRepository.addEncounter(raid, boss), writer);
     }
 
-    private void deleteEncounter(Raid raid, String boss) {
-        raidDao.deleteEncounter(raid, Encounter.Boss.valueOf(boss));
+    private Consumer<PrintWriter> deleteEncounter(Raid raid, Encounter.Boss boss) {
+        return writer -> await(raidRepository.deleteEncounter(raid, boss), writer);
     }
 
-    private void finalize(Raid raid) {
-        raidDao.finalize(raid, LocalDateTime.now());
+    private Consumer<PrintWriter> finalize(Raid raid) {
+        return writer -> await(raidRepository.finalize(raid, LocalDateTime.now()), writer);
     }
 
-    private void reopen(Raid raid) {
-        raidDao.reopen(raid);
+    private Consumer<PrintWriter> reopen(Raid raid) {
+        return writer -> await(raidRepository.reopen(raid), writer);
     }
 
     private void planRaid(PrintWriter writer, Raid raid) {
         writer.format("<div><h1>%s</h1>", df.format(raid.start));
         if (!raid.isFinalized()) {
-            writer.format("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"finalize\"/><input type=\"hidden\"name=\"raid\" value=\"%s\"/><input type=\"submit\" value=\"Finalize\"></form>", df.format(raid.start));
+            writer.format("<form method=\"post\" action=\"planRaid\"><input type=\"hidden\" name=\"action\" value=\"finalize\"/><input type=\"hidden\"name=\"raid\" value=\"%s\"/><input type=\"submit\" value=\"Finalize\"></form>", df.format(raid.start));
             writer.format("<form method=\"post\" action=\"planRaid\"><input type=\"hidden\" name=\"raid\" value=\"%s\"/>", df.format(raid.start));
             writer.println("<input type=\"hidden\" name=\"action\" value=\"addEncounter\"/>");
 
@@ -272,8 +342,19 @@ public class RaidPlanner extends AbstractHandler {
                 writer.println("</select><input type=\"submit\"/>");
                 writer.println("</form>");
             }
+
+            List<RaidSummary> sources = raidRepository.getRecentRaids(RAIDS_PER_PAGE).stream()
+                    .filter(r -> !r.start.equals(raid.start) && r.encounters > 0).collect(Collectors.toList());
+            if (!sources.isEmpty()) {
+                writer.format("<form method=\"post\" action=\"planRaid\"><input type=\"hidden\" name=\"raid\" value=\"%s\"/>", df.format(raid.start));
+                writer.println("<input type=\"hidden\" name=\"action\" value=\"cloneRoster\"/>");
+                writer.println("Copy roster from: <select name=\"source\">");
+                sources.forEach(r -> writer.format("<option value=\"%s\">%s</option>", df.format(r.start), df.format(r.start)));
+                writer.println("</select><input type=\"submit\"/>");
+                writer.println("</form>");
+            }
         } else {
-            writer.format("<form method=\"post\"><input type=\"hidden\" name=\"action\" value=\"reopen\"/><input type=\"hidden\"name=\"raid\" value=\"%s\"/><input type=\"submit\" value=\"Reopen\"></form>", df.format(raid.start));
+            writer.format("<form method=\"post\" action=\"planRaid\"><input type=\"hidden\" name=\"action\" value=\"reopen\"/><input type=\"hidden\"name=\"raid\" value=\"%s\"/><input type=\"submit\" value=\"Reopen\"></form>", df.format(raid.start));
         }
 
         writer.println("<h1>Encounters</h1>");
@@ -293,25 +374,31 @@ public class RaidPlanner extends AbstractHandler {
     private void planBoss(Raid raid, Encounter.Boss boss, PrintWriter writer) {
         Encounter encounter = raid.getEncounter(boss);
         List<Player> players = raid.acceptedPlayers();
-        writer.format("<div><h1>%s (%d)</h1>", boss, encounter.numParticipants());
+        String raidDate = df.format(raid.start);
+        bossHeader.slot(writer, 0, boss).slot(writer, 1, encounter.numParticipants()).end(writer);
 
 
-        printPlayersOfRole(raid, boss, writer, encounter, players, Player.Role.Tank);
-        printPlayersOfRole(raid, boss, writer, encounter, players, Player.Role.Healer);
-        printPlayersOfRole(raid, boss, writer, encounter, players, Player.Role.Melee);
-        printPlayersOfRole(raid, boss, writer, encounter, players, Player.Role.Ranged);
+        printPlayersOfRole(raid, raidDate, boss, writer, encounter, Player.Role.Tank);
+        printPlayersOfRole(raid, raidDate, boss, writer, encounter, Player.Role.Healer);
+        printPlayersOfRole(raid, raidDate, boss, writer, encounter, Player.Role.Melee);
+        printPlayersOfRole(raid, raidDate, boss, writer, encounter, Player.Role.Ranged);
 
 
-        writer.format("<h1>Bench (%d)</h1>", players.stream().filter(p -> !encounter.isParticipating(p)).count());
+        int benched = 0;
+        for (Player player : players) {
+            if (!encounter.isParticipating(player)) {
+                benched++;
+            }
+        }
+        benchHeader.slot(writer, 0, benched).end(writer);
         if (!raid.isFinalized()) {
             writer.println("<table><tr><th>Player</th><th>Tank</th><th>Healer</th><th>Melee</th><th>Ranged</th></tr>");
             for (Player player : players) {
                 if (!encounter.isParticipating(player)) {
-                    writer.format("<tr><td>%s</td>", player.classString());
+                    benchRow.slot(writer, 0, player).end(writer);
                     for (Player.Role role : Player.Role.values()) {
-                        if (player.roles.contains(role) && !raid.isFinalized()) {
-                            writer.format("<td><a href=\"?action=addPlayer&raid=%s&boss=%s&role=%s&player=%s\">%s</a></td>",
-                                    df.format(raid.start), boss, role, player.name, role);
+                        if (player.hasRole(role)) {
+                            addPlayerCell.slot(writer, 0, raidDate).slot(writer, 1, boss).slot(writer, 2, role).slot(writer, 3, player.name).slot(writer, 4, role).end(writer);
                         } else {
                             writer.println("<td></td>");
                         }
@@ -320,33 +407,50 @@ public class RaidPlanner extends AbstractHandler {
                 }
             }
             writer.println("</table>");
+            printRosterForm(raidDate, boss, writer, encounter, players);
         } else {
-            players.stream().filter(p->!encounter.isParticipating(p)).forEach(p->writer.format("%s<br/>", p.classString()));
+            players.stream().filter(p->!encounter.isParticipating(p)).forEach(p->playerLine.slot(writer, 0, p).end(writer));
         }
 
         writer.println("</div>");
     }
 
-    private void printPlayersOfRole(Raid raid, Encounter.Boss boss, PrintWriter writer, Encounter encounter, List<Player> players, Player.Role role) {
-        int numWithRole = encounter.getPlayersOfRole(role).size();
-        if (numWithRole > 0) {
-            writer.format("<h2>%s (%d)</h2>", role, numWithRole);
+    private void printRosterForm(String raidDate, Encounter.Boss boss, PrintWriter writer, Encounter encounter, List<Player> players) {
+        rosterFormStart.slot(writer, 0, raidDate).slot(writer, 1, boss).end(writer);
+        for (Player player : players) {
+            Player.Role current = encounter.getRole(player);
+            rosterRow.slot(writer, 0, player).slot(writer, 1, boss).slot(writer, 2, player.name).end(writer);
+            for (Player.Role role : Player.Role.values()) {
+                if (player.hasRole(role) || role == current) {
+                    rosterOption.slot(writer, 0, boss).slot(writer, 1, player.name).slot(writer, 2, role)
+                            .slot(writer, 3, role == current ? " selected" : "").slot(writer, 4, role).end(writer);
+                }
+            }
+            writer.println("</select></td></tr>");
+        }
+        writer.println("</table><input type=\"submit\" value=\"Save roster\"/></form>");
+    }
+
+    private void printPlayersOfRole(Raid raid, String raidDate, Encounter.Boss boss, PrintWriter writer, Encounter encounter, Player.Role role) {
+        List<Player> playersOfRole = encounter.getPlayersOfRole(role);
+        if (!playersOfRole.isEmpty()) {
+            roleHeaderWithCount.slot(writer, 0, role).slot(writer, 1, playersOfRole.size()).end(writer);
         } else {
-            writer.format("<h2>%s</h2>", role);
+            roleHeader.slot(writer, 0, role).end(writer);
         }
 
         if (!raid.isFinalized()) {
-            encounter.getPlayersOfRole(role).forEach(p -> writer.format("<a href=\"?raid=%s&boss=%s&action=removePlayer&player=%s\">%s</a><br/>\n",
-                    df.format(raid.start), boss, p.name, p.classString()));
+            playersOfRole.forEach(p -> removePlayerLink.slot(writer, 0, raidDate).slot(writer, 1, boss).slot(writer, 2, p.name).slot(writer, 3, p).end(writer));
         } else {
-            encounter.getPlayersOfRole(role).forEach(p -> writer.format("%s<br/>", p.classString()));
+            playersOfRole.forEach(p -> playerLine.slot(writer, 0, p).end(writer));
         }
     }
 
-    public void listRaids(PrintWriter writer) {
-        List<Raid> raids = raidDao.getRaids();
+    public void listRaids(PrintWriter writer, HttpServletRequest request) {
+        int offset = raidOffset(request);
+        List<RaidSummary> raids = raidRepository.getRaidSummaries(offset, RAIDS_PER_PAGE + 1);
         writer.println("<div><h1>Raids</h1>");
-        raids.forEach(r -> writer.format("<a href=\"?raid=%s\">%s</a><br/>\n", r.start, r.start));
+        printRaidLinks(writer, request, raids, offset);
         writer.println("</div>");
     }
 
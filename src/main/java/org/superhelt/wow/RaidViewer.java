@@ -1,51 +1,69 @@
 package org.superhelt.wow;
 
 import org.superhelt.wow.dao.PlayerDao;
-import org.superhelt.wow.dao.RaidDao;
+import org.superhelt.wow.dao.RaidRepository;
 import org.superhelt.wow.om.Encounter;
 import org.superhelt.wow.om.Player;
 import org.superhelt.wow.om.Raid;
+import org.superhelt.wow.om.RaidSummary;
 import org.superhelt.wow.om.Signup;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.stream.Collectors;
 
-import static org.superhelt.wow.om.Signup.Type.ACCEPTED;
+public class RaidViewer extends AbstractHandler {
 
-public class RaidViewer {
-    private final RaidDao raidDao;
+    private static final Template playerLine = Template.compile("{!player}<br/>\n");
+    private static final Template benchLine = Template.compile("{!player}<br/>");
+    private static final Template playerItem = Template.compile("<li>{!player}</li>");
+    private static final Template commentItem = Template.compile("<li>{!player}: {comment}</li>");
+
+    private final RaidRepository raidRepository;
     private final PlayerDao playerDao;
+    private final RaidPageCache raidPageCache;
     private static final DateTimeFormatter dateFormatter = DateTimeFormatter.ISO_LOCAL_DATE;
     private static final DateTimeFormatter timeFormatter = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
 
-    public RaidViewer(RaidDao raidDao, PlayerDao playerDao) {
-        this.raidDao = raidDao;
+    public RaidViewer(RaidRepository raidRepository, PlayerDao playerDao, RaidPageCache raidPageCache) {
+        this.raidRepository = raidRepository;
         this.playerDao = playerDao;
+        this.raidPageCache = raidPageCache;
     }
 
     public void handle(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        listRaids(response.getWriter());
+        listRaids(response.getWriter(), request);
 
         if(request.getParameter("raid")!=null) {
             LocalDate raidStart = LocalDate.parse(request.getParameter("raid"), dateFormatter);
-            Raid raid = raidDao.getRaid(raidStart);
+            Raid raid = raidRepository.getRaid(raidStart);
+            response.getWriter().flush();
 
             if(raid.isFinalized()) {
-                for (Encounter encounter : raid.encounters) {
-                    showBoss(response.getWriter(), raid, encounter);
-                }
-
-                listRaidInfo(raid, response.getWriter());
+                response.getOutputStream().write(raidPageCache.get(raid, this::showRaid));
             }
         }
     }
 
+    private byte[] showRaid(Raid raid) {
+        StringWriter page = new StringWriter();
+        PrintWriter writer = new PrintWriter(page);
+        for (Encounter encounter : raid.encounters) {
+            showBoss(writer, raid, encounter);
+        }
+
+        listRaidInfo(raid, writer);
+        writer.flush();
+        return page.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
     private void showBoss(PrintWriter writer, Raid raid, Encounter encounter) {
         writer.format("<div><h1>%s (%d)</h1>", encounter.boss, encounter.numParticipants());
 
@@ -60,11 +78,11 @@ public class RaidViewer {
     }
 
     private void printBench(PrintWriter writer, Encounter encounter, Raid raid) {
-        List<Player> players = raid.signups.stream().filter(s -> s.type == ACCEPTED).map(s -> s.player).collect(Collectors.toList());
+        List<Player> players = raid.acceptedPlayers();
         List<Player> participatingPlayers = players.stream().filter(p -> !encounter.isParticipating(p)).collect(Collectors.toList());
 
         writer.format("<h2>Bench (%d)</h2>", participatingPlayers.size());
-        participatingPlayers.forEach(p->writer.format("%s<br/>", p.classString()));
+        participatingPlayers.forEach(p->benchLine.slot(writer, 0, p).end(writer));
     }
 
     private void printPlayersOfRole(PrintWriter writer, Encounter encounter, Player.Role role) {
@@ -75,13 +93,14 @@ public class RaidViewer {
             writer.format("<h2>%s</h2>", role);
         }
 
-        encounter.getPlayersOfRole(role).forEach(p->writer.format("%s<br/>\n",p.classString()));
+        encounter.getPlayersOfRole(role).forEach(p->playerLine.slot(writer, 0, p).end(writer));
     }
 
-    public void listRaids(PrintWriter writer) {
-        List<Raid> raids = raidDao.getRaids();
+    public void listRaids(PrintWriter writer, HttpServletRequest request) {
+        int offset = raidOffset(request);
+        List<RaidSummary> raids = raidRepository.getFinalizedRaidSummaries(offset, RAIDS_PER_PAGE + 1);
         writer.println("<div><h1>Raids</h1>");
-        raids.stream().filter(r->r.isFinalized()).forEach(r->writer.format("<a href=\"?raid=%s\">%s</a><br/>\n", r.start, r.start));
+        printRaidLinks(writer, request, raids, offset);
         writer.println("</div>");
     }
 
@@ -94,22 +113,22 @@ public class RaidViewer {
             writer.print("<h1>Roster being setup</h1>");
         }
 
-        if(raid.signups.stream().filter(s->s.type== Signup.Type.TENTATIVE).count()>0) {
+        if(!raid.getSignups(Signup.Type.TENTATIVE).isEmpty()) {
             writer.println("<h2>Tentative</h2><ul>");
-            raid.signups.stream().filter(s -> s.type == Signup.Type.TENTATIVE).forEach(s -> writer.format("<li>%s: %s</li>", s.player.classString(), s.comment));
+            raid.getSignups(Signup.Type.TENTATIVE).forEach(s -> commentItem.slot(writer, 0, s.player).slot(writer, 1, s.comment).end(writer));
             writer.println("</ul>");
         }
 
-        if(raid.signups.stream().filter(s->s.type==Signup.Type.DECLINED).count()>0) {
+        if(!raid.getSignups(Signup.Type.DECLINED).isEmpty()) {
             writer.println("<h2>Declined</h2><ul>");
-            raid.signups.stream().filter(s -> s.type == Signup.Type.DECLINED).forEach(s -> writer.format("<li>%s: %s</li>", s.player.classString(), s.comment));
+            raid.getSignups(Signup.Type.DECLINED).forEach(s -> commentItem.slot(writer, 0, s.player).slot(writer, 1, s.comment).end(writer));
             writer.println("</ul>");
         }
 
-        List<Player> knownPlayers = raid.signups.stream().map(s -> s.player).distinct().collect(Collectors.toList());
-        if(knownPlayers.size() < playerDao.getActivePlayers().size()) {
+        List<Player> activePlayers = playerDao.getActivePlayers();
+        if(raid.signups.size() < activePlayers.size()) {
             writer.println("<h2>Unknown</h2><ul>");
-            playerDao.getActivePlayers().stream().filter(p -> !knownPlayers.contains(p)).forEach(p -> writer.format("<li>%s</li>", p.classString()));
+            activePlayers.stream().filter(p -> !raid.isSignedUp(p)).forEach(p -> playerItem.slot(writer, 0, p).end(writer));
             writer.println("</ul>");
         }
 
@@ -0,0 +1,63 @@
+package org.superhelt.wow;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class Route {
+
+    public final String path;
+    public final String title;
+    public final PageHandler handler;
+    public final boolean framed;
+    private final Set<String> methods;
+    private final boolean cacheable;
+
+    public Route(String path, String title, PageHandler handler, boolean cacheable, String... methods) {
+        this(path, title, handler, true, cacheable, methods);
+    }
+
+    private Route(String path, String title, PageHandler handler, boolean framed, boolean cacheable, String... methods) {
+        this.path = path;
+        this.title = title;
+        this.handler = handler;
+        this.framed = framed;
+        this.cacheable = cacheable;
+        this.methods = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(methods)));
+    }
+
+    /**
+     * A read only route whose handler writes the whole response itself, without the html page frame.
+     */
+    public static Route json(String path, PageHandler handler) {
+        return new Route(path, null, handler, false, true, "GET");
+    }
+
+    /**
+     * A long lived read only route that streams events, never revalidated against the repository version.
+     */
+    public static Route stream(String path, PageHandler handler) {
+        return new Route(path, null, handler, false, false, "GET");
+    }
+
+    public boolean allows(HttpServletRequest request) {
+        return methods.contains(request.getMethod()) || ("HEAD".equals(request.getMethod()) && methods.contains("GET"));
+    }
+
+    /**
+     * Requests carrying an action, or posted forms, change data.
+     */
+    public boolean isWrite(HttpServletRequest request) {
+        return "POST".equals(request.getMethod()) || request.getParameter("action") != null;
+    }
+
+    /**
+     * Plain page views of cacheable routes only depend on the raid data and the current date, so they can be
+     * revalidated against the repository version.
+     */
+    public boolean isCacheable(HttpServletRequest request) {
+        return cacheable && !isWrite(request);
+    }
+}
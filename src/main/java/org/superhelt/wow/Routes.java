@@ -0,0 +1,26 @@
+package org.superhelt.wow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Routing table built once at startup. Paths without a route of their own go to the fallback route.
+ */
+public class Routes {
+
+    private final Map<String, Route> routes = new HashMap<>();
+    private final Route fallback;
+
+    public Routes(Route fallback) {
+        this.fallback = fallback;
+    }
+
+    public Routes add(Route route) {
+        routes.put(route.path, route);
+        return this;
+    }
+
+    public Route get(String path) {
+        return routes.getOrDefault(path, fallback);
+    }
+}
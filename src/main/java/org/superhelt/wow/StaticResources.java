@@ -0,0 +1,240 @@
+package org.superhelt.wow;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Classpath assets loaded once at startup. Each asset is kept as plain and, for text, gzipped bytes together with a
+ * content hash that serves both as ETag and as the version in fingerprinted links. Requests for the current version
+ * may be cached for a year, anything else has to revalidate. There is no Brotli encoder on the classpath, so a br
+ * variant is only served when the build ships one precompressed next to the asset, as {@code <asset>.br}.
+ */
+public class StaticResources {
+
+    private static final Map<String, String> contentTypes = new HashMap<>();
+    static {
+        contentTypes.put("css", "text/css;charset=utf-8");
+        contentTypes.put("js", "application/javascript;charset=utf-8");
+        contentTypes.put("svg", "image/svg+xml");
+        contentTypes.put("png", "image/png");
+        contentTypes.put("ico", "image/x-icon");
+    }
+
+    private final Map<String, Resource> resources = new HashMap<>();
+
+    public StaticResources(String... paths) throws IOException {
+        for(String path : paths) {
+            resources.put(path, load(path));
+        }
+    }
+
+    /**
+     * Assets carry their own compressed variants and byte ranges, so they must not be compressed again on the way out.
+     */
+    public String[] getPaths() {
+        return resources.keySet().toArray(new String[0]);
+    }
+
+    public boolean isAsset(String path) {
+        return contentTypes.containsKey(extension(path));
+    }
+
+    public String link(String path) {
+        return path.substring(1) + "?v=" + resources.get(path).version;
+    }
+
+    public void serve(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Resource resource = resources.get(request.getRequestURI());
+        if(resource == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        if(ifRange != null && !ifRange.equals(resource.etag)) {
+            range = null;
+        }
+        boolean brotli = range == null && resource.brotli != null && accepts(request, "br");
+        boolean gzip = range == null && !brotli && resource.gzipped != null && accepts(request, "gzip");
+        String etag = brotli ? resource.brotliEtag : gzip ? resource.gzippedEtag : resource.etag;
+
+        response.setContentType(resource.contentType);
+        response.setHeader("ETag", etag);
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setHeader("Accept-Ranges", "bytes");
+        if(resource.version.equals(request.getParameter("v"))) {
+            response.setHeader("Cache-Control", "public, max-age=31536000, immutable");
+        } else {
+            response.setHeader("Cache-Control", "no-cache");
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if(ifNoneMatch != null && (ifNoneMatch.contains(resource.etag) || ifNoneMatch.contains(resource.gzippedEtag) || ifNoneMatch.contains(resource.brotliEtag))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        if(brotli) {
+            response.setHeader("Content-Encoding", "br");
+            write(response, HttpServletResponse.SC_OK, resource.brotli, 0, resource.brotli.length);
+        } else if(gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            write(response, HttpServletResponse.SC_OK, resource.gzipped, 0, resource.gzipped.length);
+        } else if(range != null) {
+            writeRange(response, resource.bytes, range);
+        } else {
+            write(response, HttpServletResponse.SC_OK, resource.bytes, 0, resource.bytes.length);
+        }
+    }
+
+    private void writeRange(HttpServletResponse response, byte[] bytes, String range) throws IOException {
+        int length = bytes.length;
+        int start;
+        int end;
+        try {
+            if(!range.startsWith("bytes=") || range.contains(",")) {
+                throw new NumberFormatException(range);
+            }
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            if(bounds[0].isEmpty()) {
+                start = Math.max(length - Integer.parseInt(bounds[1]), 0);
+                end = length - 1;
+            } else {
+                start = Integer.parseInt(bounds[0]);
+                end = bounds[1].isEmpty() ? length - 1 : Math.min(Integer.parseInt(bounds[1]), length - 1);
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            write(response, HttpServletResponse.SC_OK, bytes, 0, length);
+            return;
+        }
+
+        if(start >= length || start > end) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        response.setHeader("Content-Range", String.format("bytes %d-%d/%d", start, end, length));
+        write(response, HttpServletResponse.SC_PARTIAL_CONTENT, bytes, start, end - start + 1);
+    }
+
+    private void write(HttpServletResponse response, int status, byte[] bytes, int offset, int length) throws IOException {
+        response.setStatus(status);
+        response.setContentLength(length);
+        OutputStream out = response.getOutputStream();
+        out.write(bytes, offset, length);
+    }
+
+    private boolean accepts(HttpServletRequest request, String coding) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if(acceptEncoding == null) {
+            return false;
+        }
+        for(String accepted : acceptEncoding.split(",")) {
+            String[] parts = accepted.split(";");
+            if(parts[0].trim().equalsIgnoreCase(coding)) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private Resource load(String path) throws IOException {
+        String contentType = contentTypes.get(extension(path));
+        if(contentType == null) {
+            throw new IllegalArgumentException("Unsupported static resource "+path);
+        }
+
+        byte[] bytes;
+        try(InputStream is = getClass().getResourceAsStream(path)) {
+            if(is == null) {
+                throw new IllegalArgumentException("Missing static resource "+path);
+            }
+            bytes = readAll(is);
+        }
+
+        byte[] brotli = null;
+        try(InputStream is = getClass().getResourceAsStream(path + ".br")) {
+            if(is != null) {
+                brotli = readAll(is);
+            }
+        }
+
+        byte[] gzipped = null;
+        if(contentType.startsWith("text/") || contentType.contains("javascript") || contentType.contains("svg")) {
+            gzipped = gzip(bytes);
+            if(gzipped.length >= bytes.length) {
+                gzipped = null;
+            }
+        }
+
+        return new Resource(contentType, bytes, gzipped, brotli, hash(bytes));
+    }
+
+    private static String extension(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot < 0 ? "" : path.substring(dot + 1);
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try(GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static String hash(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuilder sb = new StringBuilder();
+            for(int i = 0; i < 8; i++) {
+                sb.append(String.format("%02x", digest[i]));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 not available", e);
+        }
+    }
+
+    private static class Resource {
+        final String contentType;
+        final byte[] bytes;
+        final byte[] gzipped;
+        final byte[] brotli;
+        final String version;
+        final String etag;
+        final String gzippedEtag;
+        final String brotliEtag;
+
+        Resource(String contentType, byte[] bytes, byte[] gzipped, byte[] brotli, String version) {
+            this.contentType = contentType;
+            this.bytes = bytes;
+            this.gzipped = gzipped;
+            this.brotli = brotli;
+            this.version = version;
+            this.etag = "\"" + version + "\"";
+            this.gzippedEtag = "\"" + version + "-gzip\"";
+            this.brotliEtag = "\"" + version + "-br\"";
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.superhelt.wow;
+
+import org.superhelt.wow.om.Player;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Markup parsed once into literal chunks and slots. A slot written as {name} is HTML escaped, {!name} is written as
+ * is and must only be given markup that is already safe. The names only document the markup: a template is rendered
+ * by filling its slots by index, in order from 0, and then calling end for the chunk after the last slot. A name that
+ * appears twice is two slots and is filled twice. Values are written straight to the writer, numbers digit by digit,
+ * so rendering allocates nothing.
+ */
+public final class Template {
+
+    private final String[] literals;
+    private final boolean[] raw;
+
+    private Template(String[] literals, boolean[] raw) {
+        this.literals = literals;
+        this.raw = raw;
+    }
+
+    public static Template compile(String source) {
+        List<String> literals = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        int start = 0;
+        int open;
+        while((open = source.indexOf('{', start)) != -1) {
+            int close = source.indexOf('}', open);
+            if(close == -1) {
+                throw new IllegalArgumentException("Unterminated slot in template "+source);
+            }
+            boolean rawSlot = source.charAt(open + 1) == '!';
+            if(close == (rawSlot ? open + 2 : open + 1)) {
+                throw new IllegalArgumentException("Unnamed slot in template "+source);
+            }
+            literals.add(source.substring(start, open));
+            raw.add(rawSlot);
+            start = close + 1;
+        }
+        literals.add(source.substring(start));
+
+        boolean[] rawSlots = new boolean[raw.size()];
+        for(int i = 0; i < rawSlots.length; i++) {
+            rawSlots[i] = raw.get(i);
+        }
+        return new Template(literals.toArray(new String[0]), rawSlots);
+    }
+
+    public Template slot(PrintWriter writer, int slot, String value) {
+        writer.write(literals[slot]);
+        if(!raw[slot]) {
+            Html.escape(writer, value);
+        } else if(value != null) {
+            writer.write(value);
+        }
+        return this;
+    }
+
+    public Template slot(PrintWriter writer, int slot, Enum<?> value) {
+        return slot(writer, slot, value.name());
+    }
+
+    public Template slot(PrintWriter writer, int slot, int value) {
+        writer.write(literals[slot]);
+        writeInt(writer, value);
+        return this;
+    }
+
+    /**
+     * Fills the slot with the player's name, coloured by class.
+     */
+    public Template slot(PrintWriter writer, int slot, Player player) {
+        writer.write(literals[slot]);
+        Html.classString(writer, player);
+        return this;
+    }
+
+    public void end(PrintWriter writer) {
+        writer.write(literals[raw.length]);
+    }
+
+    private static void writeInt(PrintWriter writer, int value) {
+        if(value < 0) {
+            if(value == Integer.MIN_VALUE) {
+                writer.write("-2147483648");
+                return;
+            }
+            writer.write('-');
+            value = -value;
+        }
+        int divisor = 1;
+        while(value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for(; divisor > 0; divisor /= 10) {
+            writer.write('0' + value / divisor % 10);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package org.superhelt.wow.api;
+
+import org.superhelt.wow.dao.PlayerDao;
+import org.superhelt.wow.dao.RaidRepository;
+import org.superhelt.wow.om.*;
+import org.superhelt.wow.stats.AttendanceStats;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Read only JSON endpoints for the guild bot and spreadsheets, served from the in-memory raid snapshot. Raids are
+ * listed newest first and paged with a cursor, the start date of the last raid on the previous page.
+ */
+public class JsonApi {
+
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final RaidRepository raidRepository;
+    private final PlayerDao playerDao;
+    private final AttendanceStats attendanceStats;
+
+    public JsonApi(RaidRepository raidRepository, PlayerDao playerDao, AttendanceStats attendanceStats) {
+        this.raidRepository = raidRepository;
+        this.playerDao = playerDao;
+        this.attendanceStats = attendanceStats;
+    }
+
+    public void raids(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LocalDate from;
+        LocalDate to;
+        LocalDate cursor;
+        int limit;
+        try {
+            from = date(request, "from");
+            to = date(request, "to");
+            cursor = date(request, "cursor");
+            limit = request.getParameter("limit") == null ? DEFAULT_LIMIT : Integer.parseInt(request.getParameter("limit"));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            badRequest(response, e.getMessage());
+            return;
+        }
+        if(limit < 1 || limit > MAX_LIMIT) {
+            badRequest(response, "limit must be between 1 and "+MAX_LIMIT);
+            return;
+        }
+        boolean details = Boolean.parseBoolean(request.getParameter("details"));
+
+        List<Raid> page = new ArrayList<>(limit);
+        LocalDate nextCursor = null;
+        for(Raid raid : raidRepository.getRaids()) {
+            if((cursor != null && !raid.start.isBefore(cursor)) || (to != null && raid.start.isAfter(to))) {
+                continue;
+            }
+            if(from != null && raid.start.isBefore(from)) {
+                break;
+            }
+            if(page.size() == limit) {
+                nextCursor = page.get(limit - 1).start;
+                break;
+            }
+            page.add(raid);
+        }
+
+        JsonWriter json = start(response);
+        json.beginObject().name("raids").beginArray();
+        for(Raid raid : page) {
+            if(details) {
+                writeRaid(json, raid);
+            } else {
+                writeSummary(json, new RaidSummary(raid));
+            }
+        }
+        json.endArray().name("nextCursor").value(nextCursor).endObject();
+    }
+
+    public void players(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String active = request.getParameter("active");
+
+        JsonWriter json = start(response);
+        json.beginObject().name("players").beginArray();
+        for(Player player : playerDao.getAllPlayers()) {
+            if(active != null && player.active != Boolean.parseBoolean(active)) {
+                continue;
+            }
+            json.beginObject()
+                    .name("id").value(player.id)
+                    .name("name").value(player.name)
+                    .name("class").value(player.playerClass)
+                    .name("roles").beginArray();
+            for(Player.Role role : player.roles) {
+                json.value(role);
+            }
+            json.endArray().name("active").value(player.active).endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    public void stats(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String name = request.getParameter("player");
+
+        JsonWriter json = start(response);
+        json.beginObject().name("stats").beginArray();
+        for(Player player : playerDao.getActivePlayers()) {
+            if(name != null && !name.equals(player.name)) {
+                continue;
+            }
+            json.beginObject().name("player").value(player.name);
+            for(AttendanceStats.Category category : AttendanceStats.Category.values()) {
+                PlayerStat stat = attendanceStats.getStat(player, category);
+                json.name(category.name().toLowerCase(Locale.ROOT)).beginObject()
+                        .name("twoWeeks").value(stat.getTwoWeeks())
+                        .name("month").value(stat.getMonth())
+                        .name("total").value(stat.getTotal())
+                        .endObject();
+            }
+            json.endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    private void writeSummary(JsonWriter json, RaidSummary summary) {
+        json.beginObject()
+                .name("start").value(summary.start)
+                .name("finalized").value(summary.finalized)
+                .name("encounters").value(summary.encounters)
+                .name("signups").value(summary.signups)
+                .name("events").value(summary.events)
+                .endObject();
+    }
+
+    private void writeRaid(JsonWriter json, Raid raid) {
+        json.beginObject()
+                .name("start").value(raid.start)
+                .name("finalized").value(raid.finalized)
+                .name("encounters").beginArray();
+        for(Encounter encounter : raid.encounters) {
+            json.beginObject().name("boss").value(encounter.boss).name("players").beginArray();
+            for(Player.Role role : Player.Role.values()) {
+                for(Player player : encounter.getPlayersOfRole(role)) {
+                    json.beginObject().name("player").value(player.name).name("role").value(role).endObject();
+                }
+            }
+            json.endArray().endObject();
+        }
+        json.endArray().name("signups").beginArray();
+        for(Signup signup : raid.signups) {
+            json.beginObject()
+                    .name("player").value(signup.player.name)
+                    .name("type").value(signup.type)
+                    .name("time").value(signup.time)
+                    .name("comment").value(signup.comment)
+                    .endObject();
+        }
+        json.endArray().name("events").beginArray();
+        for(Event event : raid.events) {
+            json.beginObject()
+                    .name("player").value(event.player.name)
+                    .name("type").value(event.type)
+                    .name("time").value(event.time)
+                    .name("comment").value(event.comment)
+                    .endObject();
+        }
+        json.endArray().endObject();
+    }
+
+    private LocalDate date(HttpServletRequest request, String parameter) {
+        String value = request.getParameter(parameter);
+        return value == null ? null : LocalDate.parse(value);
+    }
+
+    private JsonWriter start(HttpServletResponse response) throws IOException {
+        response.setContentType("application/json;charset=utf-8");
+        response.setStatus(HttpServletResponse.SC_OK);
+        return new JsonWriter(response.getWriter());
+    }
+
+    private void badRequest(HttpServletResponse response, String message) throws IOException {
+        response.setContentType("application/json;charset=utf-8");
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        new JsonWriter(response.getWriter()).beginObject().name("error").value(message).endObject();
+    }
+}
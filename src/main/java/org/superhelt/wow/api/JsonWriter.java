@@ -0,0 +1,131 @@
+package org.superhelt.wow.api;
+
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight to the response as values are produced, without building a document in memory. Commas are
+ * tracked per nesting level; names and values must be written in a valid order by the caller.
+ */
+public class JsonWriter {
+
+    private final PrintWriter writer;
+    private boolean[] hasElements = new boolean[16];
+    private int depth = 0;
+    private boolean afterName = false;
+
+    public JsonWriter(PrintWriter writer) {
+        this.writer = writer;
+    }
+
+    public JsonWriter beginObject() {
+        return open('{');
+    }
+
+    public JsonWriter endObject() {
+        return close('}');
+    }
+
+    public JsonWriter beginArray() {
+        return open('[');
+    }
+
+    public JsonWriter endArray() {
+        return close(']');
+    }
+
+    public JsonWriter name(String name) {
+        separate();
+        string(name);
+        writer.write(':');
+        afterName = true;
+        return this;
+    }
+
+    public JsonWriter value(String value) {
+        if(value == null) {
+            return nullValue();
+        }
+        separate();
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(Object value) {
+        return value(value == null ? null : value.toString());
+    }
+
+    public JsonWriter value(long value) {
+        separate();
+        writer.print(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separate();
+        writer.write(value ? "true" : "false");
+        return this;
+    }
+
+    public JsonWriter nullValue() {
+        separate();
+        writer.write("null");
+        return this;
+    }
+
+    private JsonWriter open(char bracket) {
+        separate();
+        writer.write(bracket);
+        if(++depth == hasElements.length) {
+            hasElements = Arrays.copyOf(hasElements, depth * 2);
+        }
+        hasElements[depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) {
+        depth--;
+        writer.write(bracket);
+        return this;
+    }
+
+    private void separate() {
+        if(afterName) {
+            afterName = false;
+            return;
+        }
+        if(hasElements[depth]) {
+            writer.write(',');
+        }
+        hasElements[depth] = true;
+    }
+
+    private void string(String value) {
+        writer.write('"');
+        int start = 0;
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String escape = null;
+            if(c == '"') {
+                escape = "\\\"";
+            } else if(c == '\\') {
+                escape = "\\\\";
+            } else if(c == '\n') {
+                escape = "\\n";
+            } else if(c == '\r') {
+                escape = "\\r";
+            } else if(c == '\t') {
+                escape = "\\t";
+            } else if(c < 0x20 || c == '\u2028' || c == '\u2029') {
+                escape = String.format("\\u%04x", (int) c);
+            }
+            if(escape != null) {
+                writer.write(value, start, i - start);
+                writer.write(escape);
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+}
@@ -0,0 +1,241 @@
+package org.superhelt.wow.api;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.superhelt.wow.dao.RaidListener;
+import org.superhelt.wow.dao.RaidRepository;
+import org.superhelt.wow.om.Raid;
+import org.superhelt.wow.om.RaidSummary;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pushes a small notification to open pages whenever a raid changes, as a server-sent event stream. Clients may
+ * subscribe to a single raid with the raid parameter. Changes are queued by the repository refresher and written to
+ * every client by one fan-out thread, using non-blocking writes so a slow client never holds up the others. A client
+ * that falls more than a few messages behind is disconnected, and the browser reconnects on its own. Each connection
+ * starts with a hello event carrying the current version, for the page to compare with the version it was rendered at.
+ */
+public class RaidEvents implements RaidListener {
+
+    private static final Logger log = LoggerFactory.getLogger(RaidEvents.class);
+
+    private static final int MAX_QUEUED = 1000;
+    private static final int MAX_PENDING = 16;
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final RaidRepository raidRepository;
+    private final BlockingQueue<Message> messages = new ArrayBlockingQueue<>(MAX_QUEUED);
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+
+    public RaidEvents(RaidRepository raidRepository) {
+        this.raidRepository = raidRepository;
+        Thread broadcaster = new Thread(this::broadcast, "raid-events");
+        broadcaster.setDaemon(true);
+        broadcaster.start();
+    }
+
+    public void subscribe(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        LocalDate raid;
+        try {
+            raid = request.getParameter("raid") == null ? null : LocalDate.parse(request.getParameter("raid"));
+        } catch (DateTimeParseException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType("text/event-stream;charset=utf-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        AsyncContext async = request.startAsync();
+        async.setTimeout(0);
+        Client client = new Client(async, response.getOutputStream(), raid);
+        async.addListener(client);
+        client.out.setWriteListener(client);
+        clients.add(client);
+        client.send(hello(raid));
+    }
+
+    @Override
+    public void raidsLoaded(Collection<Raid> raids) {
+        publish(new Message(null, event("reload", null)));
+    }
+
+    @Override
+    public void raidChanged(Raid previous, Raid current) {
+        publish(new Message(current.start, event("raid", new RaidSummary(current))));
+    }
+
+    private void publish(Message message) {
+        if(!clients.isEmpty() && !messages.offer(message)) {
+            log.warn("Event queue is full, dropping notification");
+        }
+    }
+
+    private byte[] event(String name, RaidSummary raid) {
+        StringWriter data = new StringWriter();
+        JsonWriter json = new JsonWriter(new PrintWriter(data));
+        if(raid == null) {
+            json.beginObject().endObject();
+        } else {
+            json.beginObject()
+                    .name("start").value(raid.start)
+                    .name("finalized").value(raid.finalized)
+                    .name("encounters").value(raid.encounters)
+                    .name("signups").value(raid.signups)
+                    .name("events").value(raid.events)
+                    .endObject();
+        }
+        return String.format("event: %s\ndata: %s\n\n", name, data).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tells a new client the current version of its raid. The version is read after the client is registered, so a
+     * change is either counted in it or sent to the client as an event.
+     */
+    private byte[] hello(LocalDate raid) {
+        long version = raid == null ? raidRepository.getVersion() : raidRepository.getVersion(raid);
+        StringWriter data = new StringWriter();
+        new JsonWriter(new PrintWriter(data)).beginObject().name("version").value(version).endObject();
+        return String.format("retry: 3000\nevent: hello\ndata: %s\n\n", data).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void broadcast() {
+        while(true) {
+            try {
+                Message message = messages.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                for(Client client : clients) {
+                    if(message == null) {
+                        client.send(HEARTBEAT);
+                    } else if(client.raid == null || message.raid == null || client.raid.equals(message.raid)) {
+                        client.send(message.bytes);
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Unable to broadcast raid event", e);
+            }
+        }
+    }
+
+    private static class Message {
+        final LocalDate raid;
+        final byte[] bytes;
+
+        Message(LocalDate raid, byte[] bytes) {
+            this.raid = raid;
+            this.bytes = bytes;
+        }
+    }
+
+    private class Client implements WriteListener, AsyncListener {
+        final AsyncContext async;
+        final ServletOutputStream out;
+        final LocalDate raid;
+        private final ArrayDeque<byte[]> pending = new ArrayDeque<>();
+        private boolean unflushed = false;
+        private boolean closed = false;
+
+        Client(AsyncContext async, ServletOutputStream out, LocalDate raid) {
+            this.async = async;
+            this.out = out;
+            this.raid = raid;
+        }
+
+        synchronized void send(byte[] message) {
+            if(closed) {
+                return;
+            }
+            if(pending.size() >= MAX_PENDING) {
+                log.debug("Disconnecting slow event client");
+                close();
+                return;
+            }
+            pending.add(message);
+            drain();
+        }
+
+        private void drain() {
+            try {
+                while(!closed && out.isReady()) {
+                    if(!pending.isEmpty()) {
+                        out.write(pending.poll());
+                        unflushed = true;
+                    } else if(unflushed) {
+                        unflushed = false;
+                        out.flush();
+                    } else {
+                        return;
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            clients.remove(this);
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // already completed by the container
+            }
+        }
+
+        @Override
+        public synchronized void onWritePossible() {
+            drain();
+        }
+
+        @Override
+        public synchronized void onError(Throwable t) {
+            close();
+        }
+
+        @Override
+        public synchronized void onComplete(AsyncEvent event) {
+            closed = true;
+            clients.remove(this);
+        }
+
+        @Override
+        public synchronized void onTimeout(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public synchronized void onError(AsyncEvent event) {
+            close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
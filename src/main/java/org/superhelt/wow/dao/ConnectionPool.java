@@ -0,0 +1,159 @@
+package org.superhelt.wow.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sqlite.SQLiteConfig;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Small pool of SQLite connections. Connections run in WAL mode with a busy timeout, so readers on one
+ * connection don't block behind a writer on another. Closing a borrowed connection hands it back to the pool.
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    private final String url;
+    private final int maxSize;
+    private final SQLiteConfig config;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private int loginTimeout = BUSY_TIMEOUT_MILLIS / 1000;
+
+    public ConnectionPool(String url, int maxSize) {
+        this.url = url;
+        this.maxSize = maxSize;
+        this.config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        config.setBusyTimeout(Integer.toString(BUSY_TIMEOUT_MILLIS));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = idle.poll();
+        if(connection == null) {
+            connection = createOrWait();
+        }
+        return borrow(connection);
+    }
+
+    private Connection createOrWait() throws SQLException {
+        if(size.incrementAndGet() <= maxSize) {
+            try {
+                return config.createConnection(url);
+            } catch (SQLException e) {
+                size.decrementAndGet();
+                throw e;
+            }
+        }
+        size.decrementAndGet();
+
+        try {
+            Connection connection = idle.poll(loginTimeout, TimeUnit.SECONDS);
+            if(connection == null) {
+                throw new SQLException("No database connection available within " + loginTimeout + "s");
+            }
+            return connection;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    private Connection borrow(Connection connection) {
+        boolean[] released = new boolean[1];
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "close":
+                    if(!released[0]) {
+                        released[0] = true;
+                        release(connection);
+                    }
+                    return null;
+                case "isClosed":
+                    return released[0] || connection.isClosed();
+                default:
+                    if(released[0]) throw new SQLException("Connection has been returned to the pool");
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        });
+    }
+
+    private void release(Connection connection) {
+        try {
+            if(connection.isClosed()) {
+                size.decrementAndGet();
+                return;
+            }
+            if(!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            idle.offer(connection);
+        } catch (SQLException e) {
+            log.error("Discarding broken connection", e);
+            size.decrementAndGet();
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        loginTimeout = seconds;
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if(iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("Not a wrapper for " + iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
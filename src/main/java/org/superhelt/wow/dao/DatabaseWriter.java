@@ -0,0 +1,131 @@
+package org.superhelt.wow.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs every database mutation on a single thread. Queued commands are drained in batches and committed in one
+ * transaction, each command inside its own savepoint so a failing command doesn't take the rest of the batch with it.
+ * The returned futures complete once the batch holding the command has been committed.
+ */
+public class DatabaseWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseWriter.class);
+
+    private final DataSource dataSource;
+    private final BlockingQueue<Write<?>> queue;
+    private final int maxBatchSize;
+
+    public DatabaseWriter(DataSource dataSource, int queueSize, int maxBatchSize) {
+        this.dataSource = dataSource;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxBatchSize = maxBatchSize;
+
+        Thread thread = new Thread(this::run, "db-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public <T> CompletableFuture<T> submit(Command<T> command, String errorMessage, Object... errorArgs) {
+        Write<T> write = new Write<>(command, errorMessage, errorArgs);
+        try {
+            queue.put(write);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write.future.completeExceptionally(e);
+        }
+        return write.future;
+    }
+
+    public CompletableFuture<Void> update(Update update, String errorMessage, Object... errorArgs) {
+        return submit(conn -> {
+            update.execute(conn);
+            return null;
+        }, errorMessage, errorArgs);
+    }
+
+    private void run() {
+        List<Write<?>> batch = new ArrayList<>();
+        while(true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                execute(batch);
+            } catch (InterruptedException e) {
+                log.error("Database writer interrupted, {} writes dropped", queue.size(), e);
+                return;
+            } catch (Throwable e) {
+                log.error("Unexpected failure in database writer, failing a batch of {} writes", batch.size(), e);
+                batch.forEach(w -> w.future.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+    }
+
+    private void execute(List<Write<?>> batch) {
+        List<Runnable> completions = new ArrayList<>(batch.size());
+        try(Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            for(Write<?> write : batch) {
+                Savepoint savepoint = conn.setSavepoint();
+                try {
+                    completions.add(write.execute(conn));
+                    conn.releaseSavepoint(savepoint);
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback(savepoint);
+                    write.fail(e);
+                }
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            log.error("Unable to commit batch of {} writes", batch.size(), e);
+            batch.forEach(w -> w.future.completeExceptionally(e));
+            return;
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    public interface Command<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+
+    public interface Update {
+        void execute(Connection conn) throws SQLException;
+    }
+
+    private static class Write<T> {
+        final Command<T> command;
+        final String errorMessage;
+        final Object[] errorArgs;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Write(Command<T> command, String errorMessage, Object[] errorArgs) {
+            this.command = command;
+            this.errorMessage = errorMessage;
+            this.errorArgs = errorArgs;
+        }
+
+        Runnable execute(Connection conn) throws SQLException {
+            T result = command.execute(conn);
+            return () -> future.complete(result);
+        }
+
+        void fail(Exception e) {
+            Object[] args = new Object[errorArgs.length + 1];
+            System.arraycopy(errorArgs, 0, args, 0, errorArgs.length);
+            args[errorArgs.length] = e;
+            log.error(errorMessage, args);
+            future.completeExceptionally(e);
+        }
+    }
+}
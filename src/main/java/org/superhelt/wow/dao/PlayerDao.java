@@ -4,121 +4,118 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.superhelt.wow.om.Player;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.stream.Collectors;
 
 public class PlayerDao {
 
     private static final Logger log = LoggerFactory.getLogger(PlayerDao.class);
 
-    private final Connection conn;
+    private final DataSource dataSource;
+    private final DatabaseWriter writer;
+    private final Map<String, Player> players = new ConcurrentSkipListMap<>();
+    private final Map<Integer, Player> playersById = new ConcurrentHashMap<>();
 
-    public PlayerDao(Connection connection) {
-        conn = connection;
+    public PlayerDao(DataSource dataSource, DatabaseWriter writer) {
+        this.dataSource = dataSource;
+        this.writer = writer;
+        loadPlayers();
     }
 
-    public List<Player> getActivePlayers() {
-        List<Player> players = new ArrayList<>();
-
-        try(Statement st = conn.createStatement();
-            ResultSet rs = st.executeQuery("select * from player where active=1 order by name")) {
+    private void loadPlayers() {
+        try(Connection conn = dataSource.getConnection();
+            Statement st = conn.createStatement();
+            ResultSet rs = st.executeQuery("select * from player")) {
             while(rs.next()) {
-                players.add(map(rs));
+                cache(map(rs));
             }
         } catch (SQLException e) {
-            log.error("Unable to find players", e);
+            log.error("Unable to load players", e);
         }
+    }
 
-        return players;
+    public List<Player> getActivePlayers() {
+        return players.values().stream().filter(Player::isActive).collect(Collectors.toList());
     }
 
     public List<Player> getAllPlayers() {
-        List<Player> players = new ArrayList<>();
-
-        try(Statement st = conn.createStatement();
-            ResultSet rs = st.executeQuery("select * from player order by name")) {
-            while(rs.next()) {
-                players.add(map(rs));
-            }
-        } catch (SQLException e) {
-            log.error("Unable to find players", e);
-        }
-
-        return players;
+        return new ArrayList<>(players.values());
     }
 
     public Player map(ResultSet rs) throws SQLException {
+        int id = rs.getInt("id");
         String name = rs.getString("name");
         Player.PlayerClass playerClass = Player.PlayerClass.valueOf(rs.getString("class"));
-        List<Player.Role> roles = getRoles(rs);
+        int roleMask = rs.getInt("role_mask");
         boolean active = rs.getInt("active")==1;
 
-        return new Player(name, playerClass, roles, active);
+        return new Player(id, name, playerClass, roleMask, active);
     }
 
-    private List<Player.Role> getRoles(ResultSet rs) throws SQLException {
-        String[] roles = rs.getString("roles").split(",");
-
-        return Arrays.stream(roles).map(s-> Player.Role.valueOf(s.trim())).collect(Collectors.toList());
-
-    }
-
-    public Player getByName(String name) {
-        try(PreparedStatement st = conn.prepareStatement("select * from player where name=?")) {
-            st.setString(1, name);
-
-            try(ResultSet rs = st.executeQuery()) {
-                while (rs.next()) {
-                    Player.PlayerClass playerClass = Player.PlayerClass.valueOf(rs.getString("class"));
-                    List<Player.Role> roles = getRoles(rs);
-                    boolean active = rs.getInt("active")==1;
-
-                    return new Player(name, playerClass, roles, active);
-                }
-            }
-        } catch (SQLException e) {
-            log.error("Unable to find player with name {}", name, e);
+    private void cache(Player player) {
+        Player previous = playersById.put(player.id, player);
+        if(previous != null) {
+            players.remove(previous.name);
         }
-
-        return new Player(name, Player.PlayerClass.Unknown, new ArrayList<>(), false);
+        players.put(player.name, player);
     }
 
-    public void updatePlayer(String originalName, Player player) {
-        try(PreparedStatement st = conn.prepareStatement("update player set name=?, class=?, roles=?, active=? where name=?")) {
-            st.setString(1, player.name);
-            st.setString(2, player.playerClass.toString());
-            st.setString(3, serializeRoles(player));
-            st.setInt(4, player.active?1:0);
-            st.setString(5, originalName);
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to update player {}", player, e);
-        }
+    public Optional<Player> getByName(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(players.get(name));
     }
 
-    public void addPlayer(Player player) {
-        try(PreparedStatement st = conn.prepareStatement("insert into player (name, class, roles) values (?, ?, ?)")) {
-            st.setString(1, player.name);
-            st.setString(2, player.playerClass.toString());
-            st.setString(3, serializeRoles(player));
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to add player", e);
+    public Player getById(int id) {
+        Player player = playersById.get(id);
+        if(player != null) {
+            return player;
         }
+
+        return new Player(id, "Unknown", Player.PlayerClass.Unknown, 0, false);
     }
 
-    private String serializeRoles(Player player) {
-        StringBuilder sb = new StringBuilder();
-        String sep = "";
-        for(Player.Role role : player.roles) {
-            sb.append(sep).append(role);
-            sep =",";
-        }
+    public CompletableFuture<Void> updatePlayer(Player player) {
+        return writer.submit(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("update player set name=?, class=?, role_mask=?, active=? where id=?")) {
+                st.setString(1, player.name);
+                st.setString(2, player.playerClass.toString());
+                st.setInt(3, player.roleMask);
+                st.setInt(4, player.active?1:0);
+                st.setInt(5, player.id);
+                return st.executeUpdate();
+            }
+        }, "Unable to update player {}", player.name).thenAccept(updated -> {
+            if(updated > 0) {
+                cache(player);
+            }
+        });
+    }
 
-        return sb.toString();
+    public CompletableFuture<Player> addPlayer(Player player) {
+        return writer.submit(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert into player (name, class, role_mask) values (?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                st.setString(1, player.name);
+                st.setString(2, player.playerClass.toString());
+                st.setInt(3, player.roleMask);
+                st.executeUpdate();
+
+                try(ResultSet keys = st.getGeneratedKeys()) {
+                    keys.next();
+                    // active is left to the column default
+                    return new Player(keys.getInt(1), player.name, player.playerClass, player.roleMask, true);
+                }
+            }
+        }, "Unable to add player {}", player.name).thenApply(added -> {
+            cache(added);
+            return added;
+        });
     }
 }
 
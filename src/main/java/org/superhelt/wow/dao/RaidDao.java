@@ -4,57 +4,111 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.superhelt.wow.om.*;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.List;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 public class RaidDao {
 
     private static final Logger log = LoggerFactory.getLogger(RaidDao.class);
 
-    private static final DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
-    private static final DateTimeFormatter dtf = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
-    private static final DateTimeFormatter tf = DateTimeFormatter.ISO_TIME;
+    private static final long NANOS_PER_MILLI = 1_000_000;
 
-    private final Connection conn;
+    private final DataSource dataSource;
+    private final DatabaseWriter writer;
     private final PlayerDao playerDao;
 
-    public RaidDao(Connection connection) {
-        conn = connection;
-        playerDao = new PlayerDao(conn);
+    public RaidDao(DataSource dataSource, DatabaseWriter writer, PlayerDao playerDao) {
+        this.dataSource = dataSource;
+        this.writer = writer;
+        this.playerDao = playerDao;
     }
 
     public List<Raid> getRaids() {
-        List<Raid> raids = new ArrayList<>();
-        try(Statement st = conn.createStatement();
-            ResultSet rs = st.executeQuery("select * from raid")) {
-            while(rs.next()) {
-                raids.add(mapRaid(rs));
+        Map<Long, Raid> raidsByStart = new HashMap<>();
+
+        try(Connection conn = dataSource.getConnection();
+            Statement st = conn.createStatement()) {
+            try(ResultSet rs = st.executeQuery("select * from raid")) {
+                while(rs.next()) {
+                    Raid raid = mapRaid(rs);
+                    raidsByStart.put(raid.start.toEpochDay(), raid);
+                }
+            }
+
+            try(ResultSet rs = st.executeQuery("select * from encounter")) {
+                while(rs.next()) {
+                    Raid raid = raidsByStart.get(rs.getLong("raid"));
+                    if(raid != null) {
+                        raid.encounters.add(new Encounter(getBoss(rs)));
+                    }
+                }
+            }
+
+            try(ResultSet rs = st.executeQuery("select * from encounter_player order by raid, boss, player_id")) {
+                while(rs.next()) {
+                    Raid raid = raidsByStart.get(rs.getLong("raid"));
+                    Encounter.Boss boss = getBoss(rs);
+                    if(raid != null && raid.containsBoss(boss)) {
+                        Player.Role role = Player.Role.valueOf(rs.getString("role"));
+                        raid.getEncounter(boss).addPlayer(playerDao.getById(rs.getInt("player_id")), role);
+                    }
+                }
+            }
+
+            try(ResultSet rs = st.executeQuery("select * from signup order by raid, player_id")) {
+                while(rs.next()) {
+                    Raid raid = raidsByStart.get(rs.getLong("raid"));
+                    if(raid != null) {
+                        raid.signups.add(mapSignup(rs, playerDao.getById(rs.getInt("player_id"))));
+                    }
+                }
+            }
+
+            try(ResultSet rs = st.executeQuery("select * from event order by raid, time")) {
+                while(rs.next()) {
+                    Raid raid = raidsByStart.get(rs.getLong("raid"));
+                    if(raid != null) {
+                        raid.events.add(mapEvent(rs, playerDao.getById(rs.getInt("player_id"))));
+                    }
+                }
             }
         } catch (SQLException e) {
             log.error("Unable to get raids", e);
         }
+
+        List<Raid> raids = new ArrayList<>(raidsByStart.values());
+        raids.forEach(r -> r.encounters.sort(Comparator.comparing(Encounter::getBoss)));
         Collections.sort(raids, Comparator.comparing((Raid r) -> r.start).reversed());
         return raids;
     }
 
-    private LocalDateTime getDateTime(String finalized) {
-        if(finalized == null || finalized.isEmpty()) return null;
-        return LocalDateTime.parse(finalized, dtf);
+    private LocalDateTime getDateTime(ResultSet rs, String column) throws SQLException {
+        long epochSecond = rs.getLong(column);
+        if(rs.wasNull()) return null;
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    private long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
     }
 
     public Raid getRaid(LocalDate date) {
-        try(PreparedStatement st = conn.prepareStatement("select * from raid where start=?")) {
-            st.setString(1, df.format(date));
+        try(Connection conn = dataSource.getConnection();
+            PreparedStatement st = conn.prepareStatement("select * from raid where start=?")) {
+            st.setLong(1, date.toEpochDay());
             try(ResultSet rs = st.executeQuery()) {
                 while(rs.next()) {
-                    return mapRaid(rs);
+                    Raid raid = mapRaid(rs);
+                    addEncounters(conn, raid);
+                    addSignups(conn, raid);
+                    addEvents(conn, raid);
+                    return raid;
                 }
             }
 
@@ -65,27 +119,18 @@ public class RaidDao {
     }
 
     private Raid mapRaid(ResultSet rs) throws SQLException {
-        LocalDate start = LocalDate.parse(rs.getString("start"), df);
-        LocalDateTime finalized = getDateTime(rs.getString("finalized"));
-        Raid raid = new Raid(start, finalized);
-        addEncounters(raid);
-        addSignups(raid);
-        addEvents(raid);
-        return raid;
+        LocalDate start = LocalDate.ofEpochDay(rs.getLong("start"));
+        LocalDateTime finalized = getDateTime(rs, "finalized");
+        return new Raid(start, finalized);
     }
 
-    private void addEvents(Raid raid) {
-        try(PreparedStatement st = conn.prepareStatement("select * from event where raid=?")) {
-            st.setString(1, df.format(raid.start));
+    private void addEvents(Connection conn, Raid raid) {
+        try(PreparedStatement st = conn.prepareStatement("select * from event where raid=? order by time")) {
+            st.setLong(1, raid.start.toEpochDay());
 
             try(ResultSet rs = st.executeQuery()) {
                 while(rs.next()) {
-                    LocalTime date = LocalTime.parse(rs.getString("time"), tf);
-                    Player player = playerDao.getByName(rs.getString("player"));
-                    Event.EventType type = Event.EventType.valueOf(rs.getString("type"));
-                    String comment = rs.getString("comment");
-
-                    raid.events.add(new Event(date, player, type, comment));
+                    raid.events.add(mapEvent(rs, playerDao.getById(rs.getInt("player_id"))));
                 }
             }
         } catch (SQLException e) {
@@ -93,17 +138,12 @@ public class RaidDao {
         }
     }
 
-    private void addSignups(Raid raid) {
-        try(PreparedStatement st = conn.prepareStatement("select * from signup where raid=?")) {
-            st.setString(1, df.format(raid.start));
+    private void addSignups(Connection conn, Raid raid) {
+        try(PreparedStatement st = conn.prepareStatement("select * from signup where raid=? order by player_id")) {
+            st.setLong(1, raid.start.toEpochDay());
             try(ResultSet rs = st.executeQuery()) {
                 while (rs.next()) {
-                    LocalDateTime time = LocalDateTime.parse(rs.getString("time"), dtf);
-                    Player player = playerDao.getByName(rs.getString("player"));
-                    Signup.Type type = Signup.Type.valueOf(rs.getString("type"));
-                    String comment = rs.getString("comment");
-
-                    raid.signups.add(new Signup(time, player, type, comment));
+                    raid.signups.add(mapSignup(rs, playerDao.getById(rs.getInt("player_id"))));
                 }
             }
         } catch (SQLException e) {
@@ -111,60 +151,128 @@ public class RaidDao {
         }
     }
 
-    public void addRaid(Raid raid) {
-        try(PreparedStatement st = conn.prepareStatement("insert into raid (start) values (?)")) {
-            st.setString(1, df.format(raid.start));
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to create raid with start {}", raid.start, e);
-        }
+    private Event mapEvent(ResultSet rs, Player player) throws SQLException {
+        LocalTime time = LocalTime.ofNanoOfDay(rs.getLong("time") * NANOS_PER_MILLI);
+        Event.EventType type = Event.EventType.valueOf(rs.getString("type"));
+        String comment = rs.getString("comment");
+
+        return new Event(time, player, type, comment);
     }
 
-    public void addEncounter(Raid raid, Encounter.Boss boss) {
-        try(PreparedStatement st = conn.prepareStatement("insert into encounter values (?, ?)")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, boss.toString());
+    private Signup mapSignup(ResultSet rs, Player player) throws SQLException {
+        LocalDateTime time = getDateTime(rs, "time");
+        Signup.Type type = Signup.Type.valueOf(rs.getString("type"));
+        String comment = rs.getString("comment");
 
-            st.executeUpdate();
-        } catch(SQLException e) {
-            log.error("Unable to add encounter {} to raid {}", boss, raid.start, e);
-        }
+        return new Signup(time, player, type, comment);
     }
 
-    public void addPlayer(Raid raid, Encounter.Boss boss, Player player, Player.Role role) {
-        try(PreparedStatement st = conn.prepareStatement("insert into encounter_player values (?, ?, ?, ?)")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, boss.toString());
-            st.setString(3, player.name);
-            st.setString(4, role.toString());
+    public CompletableFuture<Void> addRaid(Raid raid) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert into raid (start) values (?)")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.executeUpdate();
+            }
+        }, "Unable to create raid with start {}", raid.start);
+    }
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to add player {} to raid {} and boss {}", player.name, raid.start, boss, e);
-        }
+    public CompletableFuture<Void> addEncounter(Raid raid, Encounter.Boss boss) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert into encounter values (?, ?)")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setString(2, boss.toString());
+
+                st.executeUpdate();
+            }
+        }, "Unable to add encounter {} to raid {}", boss, raid.start);
     }
 
-    public void removePlayer(Raid raid, Encounter.Boss boss, Player player) {
-        try(PreparedStatement st = conn.prepareStatement("delete from encounter_player where raid=? and boss=? and player=?")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, boss.toString());
-            st.setString(3, player.name);
+    public CompletableFuture<Void> addPlayer(Raid raid, Encounter.Boss boss, Player player, Player.Role role) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert into encounter_player values (?, ?, ?, ?)")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setString(2, boss.toString());
+                st.setInt(3, player.id);
+                st.setString(4, role.toString());
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to remove player {} from raid {} and boss {}", player.name, raid.start, boss, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to add player {} to raid {} and boss {}", player.name, raid.start, boss);
     }
 
-    private void addEncounters(Raid raid) throws SQLException {
+    public CompletableFuture<Void> removePlayer(Raid raid, Encounter.Boss boss, Player player) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("delete from encounter_player where raid=? and boss=? and player_id=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setString(2, boss.toString());
+                st.setInt(3, player.id);
+
+                st.executeUpdate();
+            }
+        }, "Unable to remove player {} from raid {} and boss {}", player.name, raid.start, boss);
+    }
+
+    /**
+     * Applies the layout to the rosters of the given bosses. A player mapped to a role is assigned to it and a player
+     * mapped to null is benched; players the layout doesn't mention keep their place. Only assignments that differ
+     * from the rows stored when the command runs are written, so writes queued ahead of it in the same commit are
+     * taken into account.
+     */
+    public CompletableFuture<Void> assignPlayers(Raid raid, Map<Encounter.Boss, Map<Player, Player.Role>> layout) {
+        return writer.update(conn -> {
+            try(PreparedStatement select = conn.prepareStatement("select player_id, role from encounter_player where raid=? and boss=?");
+                PreparedStatement delete = conn.prepareStatement("delete from encounter_player where raid=? and boss=? and player_id=?");
+                PreparedStatement insert = conn.prepareStatement("insert or replace into encounter_player values (?, ?, ?, ?)")) {
+                for(Map.Entry<Encounter.Boss, Map<Player, Player.Role>> entry : layout.entrySet()) {
+                    Encounter.Boss boss = entry.getKey();
+                    Map<Integer, Player.Role> roster = new HashMap<>();
+                    entry.getValue().forEach((player, role) -> roster.put(player.id, role));
+                    if(roster.isEmpty()) {
+                        continue;
+                    }
+
+                    Map<Integer, String> stored = new HashMap<>();
+                    select.setLong(1, raid.start.toEpochDay());
+                    select.setString(2, boss.toString());
+                    try(ResultSet rs = select.executeQuery()) {
+                        while(rs.next()) {
+                            stored.put(rs.getInt("player_id"), rs.getString("role"));
+                        }
+                    }
+
+                    for(Map.Entry<Integer, Player.Role> assignment : roster.entrySet()) {
+                        if(assignment.getValue() == null) {
+                            if(stored.containsKey(assignment.getKey())) {
+                                delete.setLong(1, raid.start.toEpochDay());
+                                delete.setString(2, boss.toString());
+                                delete.setInt(3, assignment.getKey());
+                                delete.addBatch();
+                            }
+                        } else if(!assignment.getValue().toString().equals(stored.get(assignment.getKey()))) {
+                            insert.setLong(1, raid.start.toEpochDay());
+                            insert.setString(2, boss.toString());
+                            insert.setInt(3, assignment.getKey());
+                            insert.setString(4, assignment.getValue().toString());
+                            insert.addBatch();
+                        }
+                    }
+                }
+
+                delete.executeBatch();
+                insert.executeBatch();
+            }
+        }, "Unable to assign players to raid {} and bosses {}", raid.start, layout.keySet());
+    }
+
+    private void addEncounters(Connection conn, Raid raid) throws SQLException {
         try(PreparedStatement st = conn.prepareStatement("select * from encounter where raid=?")) {
-            st.setString(1, df.format(raid.start));
+            st.setLong(1, raid.start.toEpochDay());
 
             try(ResultSet rs = st.executeQuery()) {
                 while(rs.next()) {
                     Encounter.Boss boss = getBoss(rs);
                     raid.encounters.add(new Encounter(boss));
-                    addPlayers(raid, boss);
+                    addPlayers(conn, raid, boss);
                 }
 
                 raid.encounters.sort(Comparator.comparing(Encounter::getBoss));
@@ -182,15 +290,15 @@ public class RaidDao {
         }
     }
 
-    private void addPlayers(Raid raid, Encounter.Boss boss) {
-        try(PreparedStatement st = conn.prepareStatement("select * from encounter_player where raid=? and boss=?")) {
-            st.setString(1, df.format(raid.start));
+    private void addPlayers(Connection conn, Raid raid, Encounter.Boss boss) {
+        try(PreparedStatement st = conn.prepareStatement("select * from encounter_player where raid=? and boss=? order by player_id")) {
+            st.setLong(1, raid.start.toEpochDay());
             st.setString(2, boss.toString());
             
             try(ResultSet rs = st.executeQuery()) {
                 while(rs.next()) {
                     Player.Role role = Player.Role.valueOf(rs.getString("role"));
-                    Player player = playerDao.getByName(rs.getString("player"));
+                    Player player = playerDao.getById(rs.getInt("player_id"));
 
                     raid.getEncounter(boss).addPlayer(player, role);
                 }
@@ -200,94 +308,122 @@ public class RaidDao {
         }
     }
 
-    public void addSignup(Raid raid, Signup signup) {
-        try(PreparedStatement st = conn.prepareStatement("insert into signup values (?, ?, ?, ?, ?)")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, dtf.format(signup.time));
-            st.setString(3, signup.player.name);
-            st.setString(4, signup.type.toString());
-            st.setString(5, signup.comment);
+    public CompletableFuture<Void> addSignups(Raid raid, List<Signup> signups) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert or replace into signup values (?, ?, ?, ?, ?)")) {
+                for(Signup signup : signups) {
+                    st.setLong(1, raid.start.toEpochDay());
+                    st.setLong(2, toEpochSecond(signup.time));
+                    st.setInt(3, signup.player.id);
+                    st.setString(4, signup.type.toString());
+                    st.setString(5, signup.comment);
+                    st.addBatch();
+                }
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to add signup for player {} to raid {}", signup.player.name, raid.start, e);
-        }
+                st.executeBatch();
+            }
+        }, "Unable to add {} signups to raid {}", signups.size(), raid.start);
     }
 
-    public void removeSignup(Raid raid, String player) {
-        try(PreparedStatement st = conn.prepareStatement("delete from signup where raid=? and player=?")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, player);
+    public CompletableFuture<Void> removeSignup(Raid raid, Player player) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("delete from signup where raid=? and player_id=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setInt(2, player.id);
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to remove signup for player {} from raid {}", player, raid.start, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to remove signup for player {} from raid {}", player.name, raid.start);
     }
 
-    public void finalize(Raid raid, LocalDateTime finalizedTime) {
-        try(PreparedStatement st = conn.prepareStatement("update raid set finalized=? where start=?")) {
-            st.setString(1, dtf.format(finalizedTime));
-            st.setString(2, df.format(raid.start));
+    public CompletableFuture<Void> finalize(Raid raid, LocalDateTime finalizedTime) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("update raid set finalized=? where start=?")) {
+                st.setLong(1, toEpochSecond(finalizedTime));
+                st.setLong(2, raid.start.toEpochDay());
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to finalize raid {}", raid.start, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to finalize raid {}", raid.start);
     }
 
-    public void reopen(Raid raid) {
-        try(PreparedStatement st = conn.prepareStatement("update raid set finalized=null where start=?")) {
-            st.setString(1, df.format(raid.start));
+    public CompletableFuture<Void> reopen(Raid raid) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("update raid set finalized=null where start=?")) {
+                st.setLong(1, raid.start.toEpochDay());
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to reopen raid {}", raid.start, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to reopen raid {}", raid.start);
     }
 
-    public void addEvent(Raid raid, Event event) {
-        try(PreparedStatement st = conn.prepareStatement("insert into event values (?, ?, ?, ?, ?)")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, event.player.name);
-            st.setString(3, event.type.toString());
-            st.setString(4, event.comment);
-            st.setString(5, tf.format(event.time));
+    public CompletableFuture<Void> addEvent(Raid raid, Event event) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert into event values (?, ?, ?, ?, ?)")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setInt(2, event.player.id);
+                st.setString(3, event.type.toString());
+                st.setString(4, event.comment);
+                st.setLong(5, event.time.toNanoOfDay() / NANOS_PER_MILLI);
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to add event of type {} to raid {}", event.type, raid.start, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to add event of type {} to raid {}", event.type, raid.start);
     }
 
-    public void removeEvent(Raid raid, LocalTime time) {
-        try(PreparedStatement st = conn.prepareStatement("delete from event where raid=? and time=?")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, tf.format(time));
+    public CompletableFuture<Void> removeEvent(Raid raid, LocalTime time) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("delete from event where raid=? and time=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setLong(2, time.toNanoOfDay() / NANOS_PER_MILLI);
 
-            st.executeUpdate();
-        } catch (SQLException e) {
-            log.error("Unable to remove event with time {} from raid {}", raid.start, time, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to remove event with time {} from raid {}", time, raid.start);
     }
 
-    public void deleteEncounter(Raid raid, Encounter.Boss boss) {
-        try(PreparedStatement st = conn.prepareStatement("delete from encounter_player where raid=? and boss=?")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, boss.toString());
+    public CompletableFuture<Void> deleteEncounter(Raid raid, Encounter.Boss boss) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("delete from encounter_player where raid=? and boss=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setString(2, boss.toString());
 
-            st.executeUpdate();
-        } catch(SQLException e) {
-            log.error("Unable to delete players from encounter {}, {}", raid.start, boss, e);
-        }
+                st.executeUpdate();
+            }
 
-        try(PreparedStatement st = conn.prepareStatement("delete from encounter where raid=? and boss=?")) {
-            st.setString(1, df.format(raid.start));
-            st.setString(2, boss.toString());
+            try(PreparedStatement st = conn.prepareStatement("delete from encounter where raid=? and boss=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setString(2, boss.toString());
 
-            st.executeUpdate();
-        } catch(SQLException e) {
-            log.error("Unable to delete encounter {}, {}", raid.start, boss, e);
-        }
+                st.executeUpdate();
+            }
+        }, "Unable to delete encounter {}, {}", raid.start, boss);
+    }
+
+    /**
+     * Copies the encounters of the source raid into the raid, keeping the assignments of players who have accepted
+     * the raid. Encounters and assignments the raid already has are left alone.
+     */
+    public CompletableFuture<Void> cloneRoster(Raid raid, Raid source) {
+        return writer.update(conn -> {
+            try(PreparedStatement st = conn.prepareStatement("insert or ignore into encounter (raid, boss) select ?, boss from encounter where raid=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setLong(2, source.start.toEpochDay());
+
+                st.executeUpdate();
+            }
+
+            try(PreparedStatement st = conn.prepareStatement("insert or ignore into encounter_player (raid, boss, player_id, role) " +
+                    "select ?, e.boss, e.player_id, e.role from encounter_player e " +
+                    "join signup s on s.raid=? and s.player_id=e.player_id and s.type=? " +
+                    "where e.raid=?")) {
+                st.setLong(1, raid.start.toEpochDay());
+                st.setLong(2, raid.start.toEpochDay());
+                st.setString(3, Signup.Type.ACCEPTED.toString());
+                st.setLong(4, source.start.toEpochDay());
+
+                st.executeUpdate();
+            }
+        }, "Unable to clone roster from raid {} to raid {}", source.start, raid.start);
     }
 }
@@ -0,0 +1,12 @@
+package org.superhelt.wow.dao;
+
+import org.superhelt.wow.om.Raid;
+
+import java.util.Collection;
+
+public interface RaidListener {
+
+    void raidsLoaded(Collection<Raid> raids);
+
+    void raidChanged(Raid previous, Raid current);
+}
@@ -0,0 +1,259 @@
+package org.superhelt.wow.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.superhelt.wow.om.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Keeps every raid in memory as an immutable snapshot. Reads never touch the database; writes go to the database
+ * first, and once committed the affected raid is reloaded and swapped into a new snapshot. Snapshots are only
+ * replaced from a single thread, so each one reflects every write committed before it was built. Listeners are
+ * notified on that same thread before the write's future completes. Every snapshot carries a version, seeded from
+ * the startup time and bumped with each swap, that tells clients whether anything changed since they last looked.
+ */
+public class RaidRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(RaidRepository.class);
+
+    private final RaidDao raidDao;
+    private final PlayerDao playerDao;
+    private final Executor refresher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "raid-repository");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<RaidListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Snapshot snapshot;
+
+    public RaidRepository(RaidDao raidDao, PlayerDao playerDao) {
+        this.raidDao = raidDao;
+        this.playerDao = playerDao;
+        this.snapshot = Snapshot.of(raidDao.getRaids(), System.currentTimeMillis());
+    }
+
+    public void addListener(RaidListener listener) {
+        CompletableFuture.runAsync(() -> {
+            listeners.add(listener);
+            listener.raidsLoaded(snapshot.raids);
+        }, refresher).join();
+    }
+
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    /**
+     * The version of the snapshot the raid last changed in, or of the last full load if it hasn't changed since.
+     * Read it before the raid itself, so a change landing in between makes the version look older, never newer.
+     */
+    public long getVersion(LocalDate start) {
+        Snapshot current = snapshot;
+        return current.raidVersions.getOrDefault(start, current.loadedVersion);
+    }
+
+    public long getLastModified() {
+        return snapshot.modified;
+    }
+
+    public List<Raid> getRaids() {
+        return snapshot.raids;
+    }
+
+    public Raid getRaid(LocalDate date) {
+        Raid raid = snapshot.byStart.get(date);
+        if(raid == null) {
+            throw new IllegalArgumentException("Unknown raid "+date);
+        }
+        return raid;
+    }
+
+    public boolean raidExists(LocalDate date) {
+        return snapshot.byStart.containsKey(date);
+    }
+
+    public List<RaidSummary> getRaidSummaries(int offset, int limit) {
+        return page(snapshot.summaries, offset, limit);
+    }
+
+    public List<RaidSummary> getFinalizedRaidSummaries(int offset, int limit) {
+        return page(snapshot.finalizedSummaries, offset, limit);
+    }
+
+    public List<RaidSummary> getRecentRaids(int limit) {
+        return getRaidSummaries(0, limit);
+    }
+
+    private List<RaidSummary> page(List<RaidSummary> summaries, int offset, int limit) {
+        int from = Math.min(Math.max(offset, 0), summaries.size());
+        return summaries.subList(from, Math.min(from + limit, summaries.size()));
+    }
+
+    public CompletableFuture<Void> addRaid(Raid raid) {
+        return refreshAfter(raid.start, raidDao.addRaid(raid));
+    }
+
+    public CompletableFuture<Void> addEncounter(Raid raid, Encounter.Boss boss) {
+        return refreshAfter(raid.start, raidDao.addEncounter(raid, boss));
+    }
+
+    public CompletableFuture<Void> deleteEncounter(Raid raid, Encounter.Boss boss) {
+        return refreshAfter(raid.start, raidDao.deleteEncounter(raid, boss));
+    }
+
+    public CompletableFuture<Void> addPlayer(Raid raid, Encounter.Boss boss, Player player, Player.Role role) {
+        return refreshAfter(raid.start, raidDao.addPlayer(raid, boss, player, role));
+    }
+
+    public CompletableFuture<Void> removePlayer(Raid raid, Encounter.Boss boss, Player player) {
+        return refreshAfter(raid.start, raidDao.removePlayer(raid, boss, player));
+    }
+
+    public CompletableFuture<Void> assignPlayers(Raid raid, Map<Encounter.Boss, Map<Player, Player.Role>> layout) {
+        return refreshAfter(raid.start, raidDao.assignPlayers(raid, layout));
+    }
+
+    public CompletableFuture<Void> cloneRoster(Raid raid, Raid source) {
+        return refreshAfter(raid.start, raidDao.cloneRoster(raid, source));
+    }
+
+    public CompletableFuture<Void> addSignups(Raid raid, List<Signup> signups) {
+        return refreshAfter(raid.start, raidDao.addSignups(raid, signups));
+    }
+
+    public CompletableFuture<Void> removeSignup(Raid raid, Player player) {
+        return refreshAfter(raid.start, raidDao.removeSignup(raid, player));
+    }
+
+    public CompletableFuture<Void> finalize(Raid raid, LocalDateTime finalizedTime) {
+        return refreshAfter(raid.start, raidDao.finalize(raid, finalizedTime));
+    }
+
+    public CompletableFuture<Void> reopen(Raid raid) {
+        return refreshAfter(raid.start, raidDao.reopen(raid));
+    }
+
+    public CompletableFuture<Void> addEvent(Raid raid, Event event) {
+        return refreshAfter(raid.start, raidDao.addEvent(raid, event));
+    }
+
+    public CompletableFuture<Void> removeEvent(Raid raid, LocalTime time) {
+        return refreshAfter(raid.start, raidDao.removeEvent(raid, time));
+    }
+
+    public CompletableFuture<Void> addPlayer(Player player) {
+        return reloadAfter(playerDao.addPlayer(player));
+    }
+
+    public CompletableFuture<Void> updatePlayer(Player player) {
+        return reloadAfter(playerDao.updatePlayer(player));
+    }
+
+    private CompletableFuture<Void> refreshAfter(LocalDate start, CompletableFuture<Void> write) {
+        return write.thenRunAsync(() -> refresh(start), refresher);
+    }
+
+    private CompletableFuture<Void> reloadAfter(CompletableFuture<?> write) {
+        return write.thenRunAsync(this::reload, refresher);
+    }
+
+    /**
+     * The write has already been committed when this runs, so a failure to read it back must not fail the caller.
+     * The raid is then picked up by a full reload instead.
+     */
+    private void refresh(LocalDate start) {
+        Raid raid;
+        try {
+            raid = raidDao.getRaid(start);
+        } catch (RuntimeException e) {
+            log.error("Unable to reload raid {} after a write, reloading all raids", start, e);
+            reload();
+            return;
+        }
+        Raid previous = snapshot.byStart.get(start);
+        snapshot = snapshot.with(raid);
+        Raid current = snapshot.byStart.get(start);
+        notifyListeners(l -> l.raidChanged(previous, current));
+    }
+
+    private void reload() {
+        try {
+            snapshot = Snapshot.of(raidDao.getRaids(), snapshot.version + 1);
+        } catch (RuntimeException e) {
+            log.error("Unable to reload raids, keeping the previous snapshot", e);
+            return;
+        }
+        List<Raid> raids = snapshot.raids;
+        notifyListeners(l -> l.raidsLoaded(raids));
+    }
+
+    private void notifyListeners(Consumer<RaidListener> notification) {
+        for(RaidListener listener : listeners) {
+            try {
+                notification.accept(listener);
+            } catch (RuntimeException e) {
+                log.error("Raid listener {} failed", listener.getClass().getName(), e);
+            }
+        }
+    }
+
+    private static class Snapshot {
+        final List<Raid> raids;
+        final Map<LocalDate, Raid> byStart;
+        final List<RaidSummary> summaries;
+        final List<RaidSummary> finalizedSummaries;
+        final Map<LocalDate, Long> raidVersions;
+        final long loadedVersion;
+        final long version;
+        final long modified;
+
+        private Snapshot(Map<LocalDate, Raid> byStart, Map<LocalDate, Long> raidVersions, long loadedVersion, long version) {
+            this.raidVersions = Collections.unmodifiableMap(raidVersions);
+            this.loadedVersion = loadedVersion;
+            this.version = version;
+            this.modified = System.currentTimeMillis();
+
+            List<Raid> sorted = new ArrayList<>(byStart.values());
+            sorted.sort(Comparator.comparing((Raid r) -> r.start).reversed());
+            this.raids = Collections.unmodifiableList(sorted);
+            this.byStart = Collections.unmodifiableMap(byStart);
+
+            List<RaidSummary> summaries = new ArrayList<>(sorted.size());
+            List<RaidSummary> finalizedSummaries = new ArrayList<>();
+            for(Raid raid : sorted) {
+                RaidSummary summary = new RaidSummary(raid);
+                summaries.add(summary);
+                if(summary.isFinalized()) {
+                    finalizedSummaries.add(summary);
+                }
+            }
+            this.summaries = Collections.unmodifiableList(summaries);
+            this.finalizedSummaries = Collections.unmodifiableList(finalizedSummaries);
+        }
+
+        static Snapshot of(Collection<Raid> raids, long version) {
+            Map<LocalDate, Raid> byStart = new HashMap<>();
+            raids.forEach(r -> byStart.put(r.start, r.immutableCopy()));
+            return new Snapshot(byStart, new HashMap<>(), version, version);
+        }
+
+        Snapshot with(Raid raid) {
+            Map<LocalDate, Raid> byStart = new HashMap<>(this.byStart);
+            byStart.put(raid.start, raid.immutableCopy());
+            Map<LocalDate, Long> raidVersions = new HashMap<>(this.raidVersions);
+            raidVersions.put(raid.start, version + 1);
+            return new Snapshot(byStart, raidVersions, loadedVersion, version + 1);
+        }
+    }
+}
@@ -5,31 +5,53 @@ import java.util.*;
 public class Encounter {
 
     public final Boss boss;
-    public final Map<Player.Role, List<Player>> participants;
+    private final Map<Player.Role, List<Player>> participants;
+    private final Map<Player, Player.Role> roles;
 
     public Encounter(Boss boss) {
         this.boss = boss;
-        this.participants = new HashMap<>();
+        this.participants = new EnumMap<>(Player.Role.class);
+        this.roles = new HashMap<>();
+    }
+
+    private Encounter(Encounter encounter) {
+        this.boss = encounter.boss;
+        Map<Player.Role, List<Player>> participants = new EnumMap<>(Player.Role.class);
+        encounter.participants.forEach((role, players) -> participants.put(role, Collections.unmodifiableList(new ArrayList<>(players))));
+        this.participants = Collections.unmodifiableMap(participants);
+        this.roles = Collections.unmodifiableMap(new HashMap<>(encounter.roles));
+    }
+
+    public Encounter immutableCopy() {
+        return new Encounter(this);
     }
 
     public boolean isParticipating(Player player) {
-        return participants.values().stream().flatMap(l->l.stream()).anyMatch(p->p.name.equals(player.name));
+        return roles.containsKey(player);
+    }
+
+    public Player.Role getRole(Player player) {
+        return roles.get(player);
     }
 
     public List<Player> getPlayersOfRole(Player.Role role) {
-        if(participants.containsKey(role)) return participants.get(role);
+        if(participants.containsKey(role)) return Collections.unmodifiableList(participants.get(role));
         else return Collections.emptyList();
     }
 
+    public Set<Player> getParticipants() {
+        return Collections.unmodifiableSet(roles.keySet());
+    }
+
     public void addPlayer(Player player, Player.Role role) {
-        if(!participants.containsKey(role)) {
-            participants.put(role, new ArrayList<>());
-        }
-        participants.get(role).add(player);
+        removePlayer(player);
+        participants.computeIfAbsent(role, r -> new ArrayList<>()).add(player);
+        roles.put(player, role);
     }
 
     public void removePlayer(Player player) {
-        for(Player.Role role : participants.keySet()) {
+        Player.Role role = roles.remove(player);
+        if(role != null) {
             participants.get(role).remove(player);
         }
     }
@@ -39,11 +61,7 @@ public class Encounter {
     }
 
     public int numParticipants() {
-        int num = 0;
-        for(List<Player> players : participants.values()) {
-            num += players.size();
-        }
-        return num;
+        return roles.size();
     }
 
     public enum Boss {
@@ -1,26 +1,33 @@
 package org.superhelt.wow.om;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
 
 public class Player {
+    public final int id;
     public final String name;
     public final PlayerClass playerClass;
-    public final List<Role> roles;
+    public final Set<Role> roles;
+    public final int roleMask;
     public final boolean active;
 
-    public Player(String name, PlayerClass playerClass, List<Role> roles, boolean active) {
+    public Player(int id, String name, PlayerClass playerClass, Collection<Role> roles, boolean active) {
+        this(id, name, playerClass, Role.toMask(roles), active);
+    }
+
+    public Player(int id, String name, PlayerClass playerClass, int roleMask, boolean active) {
+        this.id = id;
         this.name = name;
         this.playerClass = playerClass;
-        this.roles = roles;
+        this.roleMask = roleMask;
+        this.roles = Collections.unmodifiableSet(Role.fromMask(roleMask));
         this.active = active;
     }
 
     public boolean hasRole(Role role) {
-        return roles.stream().anyMatch(r->r==role);
-    }
-
-    public String classString() {
-        return String.format("<span class=\"%s\">%s</span>", playerClass.toString().toLowerCase(), name);
+        return (roleMask & role.mask()) != 0;
     }
 
     public boolean isActive() {
@@ -32,7 +39,29 @@ public class Player {
     }
 
     public enum Role {
-        Tank, Healer, Melee, Ranged
+        Tank, Healer, Melee, Ranged;
+
+        public int mask() {
+            return 1 << ordinal();
+        }
+
+        public static int toMask(Collection<Role> roles) {
+            int mask = 0;
+            for(Role role : roles) {
+                mask |= role.mask();
+            }
+            return mask;
+        }
+
+        public static EnumSet<Role> fromMask(int mask) {
+            EnumSet<Role> roles = EnumSet.noneOf(Role.class);
+            for(Role role : values()) {
+                if((mask & role.mask()) != 0) {
+                    roles.add(role);
+                }
+            }
+            return roles;
+        }
     }
 
     @Override
@@ -40,18 +69,11 @@ public class Player {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
 
-        Player player = (Player) o;
-
-        if (name != null ? !name.equals(player.name) : player.name != null) return false;
-        if (playerClass != player.playerClass) return false;
-        return roles != null ? roles.equals(player.roles) : player.roles == null;
+        return id == ((Player) o).id;
     }
 
     @Override
     public int hashCode() {
-        int result = name != null ? name.hashCode() : 0;
-        result = 31 * result + (playerClass != null ? playerClass.hashCode() : 0);
-        result = 31 * result + (roles != null ? roles.hashCode() : 0);
-        return result;
+        return id;
     }
 }
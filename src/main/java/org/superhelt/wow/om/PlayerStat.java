@@ -40,7 +40,7 @@ public class PlayerStat {
     }
 
     public void incrementToday() {
-        total++;
+        today++;
     }
 
     public void incrementTwoWeeks() {
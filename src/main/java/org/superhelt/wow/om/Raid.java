@@ -2,9 +2,7 @@ package org.superhelt.wow.om;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 public class Raid {
@@ -15,18 +13,35 @@ public class Raid {
     public final List<Encounter> encounters;
     public final List<Signup> signups;
 
+    private final boolean immutable;
+    private volatile Indexes indexes;
+
     public Raid(LocalDate start, LocalDateTime finalized) {
         this.start = start;
         this.events = new ArrayList<>();
         this.encounters = new ArrayList<>();
         this.signups = new ArrayList<>();
         this.finalized = finalized;
+        this.immutable = false;
     }
 
     public Raid(LocalDate start) {
         this(start, null);
     }
 
+    private Raid(Raid raid) {
+        this.start = raid.start;
+        this.finalized = raid.finalized;
+        this.events = Collections.unmodifiableList(new ArrayList<>(raid.events));
+        this.encounters = Collections.unmodifiableList(raid.encounters.stream().map(Encounter::immutableCopy).collect(Collectors.toList()));
+        this.signups = Collections.unmodifiableList(new ArrayList<>(raid.signups));
+        this.immutable = true;
+    }
+
+    public Raid immutableCopy() {
+        return new Raid(this);
+    }
+
     public boolean containsBoss(Encounter.Boss boss) {
         return encounters.stream().anyMatch(e->e.boss==boss);
     }
@@ -36,24 +51,76 @@ public class Raid {
     }
 
     public List<Player> acceptedPlayers() {
-        return this.signups.stream().filter(s->s.type==Signup.Type.ACCEPTED).map(s->s.player).distinct().collect(Collectors.toList());
+        return indexes().acceptedPlayers;
     }
 
     public boolean isAccepted(Player player) {
-        return this.signups.stream().anyMatch(s->s.type==Signup.Type.ACCEPTED && s.player.equals(player));
+        return getSignupStatus(player).orElse(null) == Signup.Type.ACCEPTED;
+    }
+
+    public boolean isSignedUp(Player player) {
+        return indexes().signupsByPlayer.containsKey(player);
     }
 
     public Optional<Signup.Type> getSignupStatus(Player player) {
-        Optional<Signup> signup = this.signups.stream().filter(s -> s.player.equals(player)).findFirst();
+        return Optional.ofNullable(indexes().signupsByPlayer.get(player)).map(s -> s.type);
+    }
+
+    public List<Signup> getSignups(Signup.Type type) {
+        return indexes().signupsByType.getOrDefault(type, Collections.emptyList());
+    }
 
-        if(signup.isPresent()) {
-            return Optional.of(signup.get().type);
-        } else {
-            return Optional.empty();
+    public List<Event> getEvents(Player player) {
+        return indexes().eventsByPlayer.getOrDefault(player, Collections.emptyList());
+    }
+
+    public List<Event> getEvents(Event.EventType type) {
+        return indexes().eventsByType.getOrDefault(type, Collections.emptyList());
+    }
+
+    /**
+     * Indexes are built once on first use for immutable copies. Mutable raids are still being assembled, so they are
+     * indexed from scratch on every lookup.
+     */
+    private Indexes indexes() {
+        if(!immutable) {
+            return new Indexes(this);
+        }
+        Indexes result = indexes;
+        if(result == null) {
+            result = new Indexes(this);
+            indexes = result;
         }
+        return result;
     }
 
     public boolean isFinalized() {
         return finalized!=null;
     }
+
+    private static class Indexes {
+        final Map<Player, Signup> signupsByPlayer = new HashMap<>();
+        final Map<Signup.Type, List<Signup>> signupsByType = new EnumMap<>(Signup.Type.class);
+        final Map<Player, List<Event>> eventsByPlayer = new HashMap<>();
+        final Map<Event.EventType, List<Event>> eventsByType = new EnumMap<>(Event.EventType.class);
+        final List<Player> acceptedPlayers;
+
+        Indexes(Raid raid) {
+            List<Player> accepted = new ArrayList<>();
+            for(Signup signup : raid.signups) {
+                if(signupsByPlayer.putIfAbsent(signup.player, signup) == null && signup.type == Signup.Type.ACCEPTED) {
+                    accepted.add(signup.player);
+                }
+                signupsByType.computeIfAbsent(signup.type, t -> new ArrayList<>()).add(signup);
+            }
+            for(Event event : raid.events) {
+                eventsByPlayer.computeIfAbsent(event.player, p -> new ArrayList<>()).add(event);
+                eventsByType.computeIfAbsent(event.type, t -> new ArrayList<>()).add(event);
+            }
+            this.acceptedPlayers = Collections.unmodifiableList(accepted);
+            signupsByType.replaceAll((t, l) -> Collections.unmodifiableList(l));
+            eventsByPlayer.replaceAll((p, l) -> Collections.unmodifiableList(l));
+            eventsByType.replaceAll((t, l) -> Collections.unmodifiableList(l));
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package org.superhelt.wow.om;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class RaidSummary {
+
+    public final LocalDate start;
+    public final LocalDateTime finalized;
+    public final int encounters;
+    public final int signups;
+    public final int events;
+
+    public RaidSummary(LocalDate start, LocalDateTime finalized, int encounters, int signups, int events) {
+        this.start = start;
+        this.finalized = finalized;
+        this.encounters = encounters;
+        this.signups = signups;
+        this.events = events;
+    }
+
+    public RaidSummary(Raid raid) {
+        this(raid.start, raid.finalized, raid.encounters.size(), raid.signups.size(), raid.events.size());
+    }
+
+    public boolean isFinalized() {
+        return finalized!=null;
+    }
+}
@@ -0,0 +1,125 @@
+package org.superhelt.wow.stats;
+
+import org.superhelt.wow.dao.RaidListener;
+import org.superhelt.wow.om.*;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Per player signup and event statistics, kept up to date from raid changes instead of recomputed per page view.
+ * A player counts as unknown for every raid from their first signup onwards that they didn't sign up for.
+ */
+public class AttendanceStats implements RaidListener {
+
+    private final TreeSet<LocalDate> raidDates = new TreeSet<>();
+    private final Map<Integer, PlayerAttendance> players = new HashMap<>();
+
+    public synchronized PlayerStat getStat(Player player, Category category) {
+        PlayerAttendance attendance = players.get(player.id);
+        if(attendance == null) {
+            return new PlayerStat(player);
+        }
+        return attendance.counter(category).toStat(player, LocalDate.now());
+    }
+
+    @Override
+    public synchronized void raidsLoaded(Collection<Raid> raids) {
+        raidDates.clear();
+        players.clear();
+        for(Raid raid : raids) {
+            raidDates.add(raid.start);
+            apply(raid, 1);
+        }
+        players.values().forEach(this::recountUnknown);
+    }
+
+    @Override
+    public synchronized void raidChanged(Raid previous, Raid current) {
+        Map<Integer, LocalDate> firstSignups = new HashMap<>();
+        players.forEach((id, attendance) -> firstSignups.put(id, attendance.firstSignup()));
+
+        if(previous != null) {
+            apply(previous, -1);
+        }
+        raidDates.add(current.start);
+        apply(current, 1);
+
+        players.forEach((id, attendance) -> {
+            if(Objects.equals(firstSignups.get(id), attendance.firstSignup())) {
+                updateUnknown(attendance, current.start);
+            } else {
+                recountUnknown(attendance);
+            }
+        });
+    }
+
+    private void apply(Raid raid, int delta) {
+        for(Signup signup : raid.signups) {
+            PlayerAttendance attendance = players.computeIfAbsent(signup.player.id, id -> new PlayerAttendance());
+            if(delta > 0) {
+                attendance.signedUp.add(raid.start);
+            } else {
+                attendance.signedUp.remove(raid.start);
+            }
+
+            switch (signup.type) {
+                case TENTATIVE:
+                    attendance.counter(Category.TENTATIVE).add(raid.start, delta);
+                    break;
+                case DECLINED:
+                    attendance.counter(Category.DECLINED).add(raid.start, delta);
+                    break;
+            }
+        }
+
+        for(Event event : raid.events) {
+            PlayerAttendance attendance = players.computeIfAbsent(event.player.id, id -> new PlayerAttendance());
+            switch (event.type) {
+                case NOSHOW:
+                    attendance.counter(Category.NOSHOW).add(raid.start, delta);
+                    break;
+                case LATE:
+                    attendance.counter(Category.LATE).add(raid.start, delta);
+                    break;
+            }
+        }
+    }
+
+    private void recountUnknown(PlayerAttendance attendance) {
+        DatedCounter unknown = attendance.counter(Category.UNKNOWN);
+        unknown.clear();
+
+        LocalDate firstSignup = attendance.firstSignup();
+        if(firstSignup != null) {
+            for(LocalDate date : raidDates.tailSet(firstSignup, true)) {
+                if(!attendance.signedUp.contains(date)) {
+                    unknown.set(date, 1);
+                }
+            }
+        }
+    }
+
+    private void updateUnknown(PlayerAttendance attendance, LocalDate date) {
+        LocalDate firstSignup = attendance.firstSignup();
+        boolean unknown = firstSignup != null && !date.isBefore(firstSignup) && !attendance.signedUp.contains(date);
+        attendance.counter(Category.UNKNOWN).set(date, unknown ? 1 : 0);
+    }
+
+    public enum Category {
+        TENTATIVE, DECLINED, UNKNOWN, NOSHOW, LATE
+    }
+
+    private static class PlayerAttendance {
+        final TreeSet<LocalDate> signedUp = new TreeSet<>();
+        final Map<Category, DatedCounter> counters = new EnumMap<>(Category.class);
+
+        DatedCounter counter(Category category) {
+            return counters.computeIfAbsent(category, c -> new DatedCounter());
+        }
+
+        LocalDate firstSignup() {
+            return signedUp.isEmpty() ? null : signedUp.first();
+        }
+    }
+}
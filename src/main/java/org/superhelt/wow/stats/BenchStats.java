@@ -0,0 +1,61 @@
+package org.superhelt.wow.stats;
+
+import org.superhelt.wow.dao.RaidListener;
+import org.superhelt.wow.om.Encounter;
+import org.superhelt.wow.om.Player;
+import org.superhelt.wow.om.PlayerStat;
+import org.superhelt.wow.om.Raid;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Number of encounters each player sat out in raids they had accepted, bucketed per raid date and updated from raid
+ * changes.
+ */
+public class BenchStats implements RaidListener {
+
+    private final Map<Integer, DatedCounter> benches = new HashMap<>();
+
+    public synchronized List<PlayerStat> getBenchedPlayers(Raid raid) {
+        LocalDate today = LocalDate.now();
+        List<PlayerStat> playerStats = new ArrayList<>();
+        for(Player player : raid.acceptedPlayers()) {
+            DatedCounter counter = benches.get(player.id);
+            if(counter != null && counter.get(raid.start) > 0) {
+                playerStats.add(counter.toStat(player, raid.start, today));
+            }
+        }
+        return playerStats;
+    }
+
+    @Override
+    public synchronized void raidsLoaded(Collection<Raid> raids) {
+        benches.clear();
+        raids.forEach(this::apply);
+    }
+
+    @Override
+    public synchronized void raidChanged(Raid previous, Raid current) {
+        if(previous != null) {
+            previous.acceptedPlayers().forEach(p -> counter(p).set(previous.start, 0));
+        }
+        apply(current);
+    }
+
+    private void apply(Raid raid) {
+        for(Player player : raid.acceptedPlayers()) {
+            int benched = 0;
+            for(Encounter encounter : raid.encounters) {
+                if(!encounter.isParticipating(player)) {
+                    benched++;
+                }
+            }
+            counter(player).set(raid.start, benched);
+        }
+    }
+
+    private DatedCounter counter(Player player) {
+        return benches.computeIfAbsent(player.id, id -> new DatedCounter());
+    }
+}
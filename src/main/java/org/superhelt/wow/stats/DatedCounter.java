@@ -0,0 +1,56 @@
+package org.superhelt.wow.stats;
+
+import org.superhelt.wow.om.Player;
+import org.superhelt.wow.om.PlayerStat;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.TreeMap;
+
+/**
+ * Counts bucketed by raid date with a running total. The two week and month windows are summed from the buckets
+ * inside the window, so they stay cheap no matter how long the history is.
+ */
+class DatedCounter {
+
+    private final TreeMap<LocalDate, Integer> counts = new TreeMap<>();
+    private int total;
+
+    void add(LocalDate date, int delta) {
+        set(date, get(date) + delta);
+    }
+
+    void set(LocalDate date, int count) {
+        Integer previous = count == 0 ? counts.remove(date) : counts.put(date, count);
+        total += count - (previous == null ? 0 : previous);
+    }
+
+    int get(LocalDate date) {
+        return counts.getOrDefault(date, 0);
+    }
+
+    void clear() {
+        counts.clear();
+        total = 0;
+    }
+
+    private int after(LocalDate date) {
+        int sum = 0;
+        for(int count : counts.tailMap(date, false).values()) {
+            sum += count;
+        }
+        return sum;
+    }
+
+    PlayerStat toStat(Player player, LocalDate today) {
+        return toStat(player, today, today);
+    }
+
+    PlayerStat toStat(Player player, LocalDate day, LocalDate today) {
+        return new PlayerStat(player,
+                get(day),
+                after(today.minus(2, ChronoUnit.WEEKS)),
+                after(today.minus(1, ChronoUnit.MONTHS)),
+                total);
+    }
+}
@@ -0,0 +1,87 @@
+-- raid dates are stored as epoch days, timestamps as epoch seconds and event times as milliseconds of the day
+
+create table raid_new (
+  start integer primary key,
+  finalized integer
+);
+
+insert into raid_new
+  select cast(julianday(start) - 2440587.5 as integer),
+         cast(strftime('%s', finalized) as integer)
+  from raid;
+
+create table signup_new (
+  raid integer,
+  time integer,
+  player varchar2,
+  type varchar2,
+  comment varchar2,
+  primary key (raid, player),
+  foreign key (raid) references raid(start),
+  foreign key (player) references player(name)
+);
+
+insert into signup_new
+  select cast(julianday(raid) - 2440587.5 as integer),
+         cast(strftime('%s', time) as integer),
+         player, type, comment
+  from signup;
+
+create table encounter_new (
+  raid integer,
+  boss varchar2,
+  primary key (raid, boss),
+  foreign key (raid) references raid(start)
+);
+
+insert or ignore into encounter_new
+  select cast(julianday(raid) - 2440587.5 as integer), boss
+  from encounter;
+
+create table encounter_player_new (
+  raid integer,
+  boss varchar2,
+  player varchar2,
+  role varchar2,
+  primary key (raid, boss, player),
+  foreign key (raid, boss) references encounter(raid, boss),
+  foreign key (player) references player(name)
+);
+
+insert into encounter_player_new
+  select cast(julianday(raid) - 2440587.5 as integer), boss, player, role
+  from encounter_player;
+
+create table event_new (
+  raid integer,
+  player varchar2,
+  type varchar2,
+  comment varchar2,
+  time integer,
+  primary key (raid, time),
+  foreign key (raid) references raid(start),
+  foreign key (player) references player(name)
+);
+
+insert into event_new
+  select cast(julianday(raid) - 2440587.5 as integer),
+         player, type, comment,
+         (cast(substr(time, 1, 2) as integer) * 3600 + cast(substr(time, 4, 2) as integer) * 60 + cast(substr(time, 7, 2) as integer)) * 1000
+           + cast(substr(substr(time, 10) || '000', 1, 3) as integer)
+  from event;
+
+drop table encounter_player;
+drop table encounter;
+drop table signup;
+drop table event;
+drop table raid;
+
+alter table raid_new rename to raid;
+alter table signup_new rename to signup;
+alter table encounter_new rename to encounter;
+alter table encounter_player_new rename to encounter_player;
+alter table event_new rename to event;
+
+create index signup_player on signup (player);
+create index event_player on event (player);
+create index encounter_player_player on encounter_player (player);
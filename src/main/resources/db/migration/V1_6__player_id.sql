@@ -0,0 +1,78 @@
+-- players get an integer id and every relation references it instead of the player name
+
+create table player_new (
+  id integer primary key autoincrement,
+  name varchar not null unique,
+  class varchar,
+  roles varchar,
+  active integer default 1
+);
+
+insert into player_new (name, class, roles, active)
+  select name, class, roles, active from player order by name;
+
+-- history can reference names that no longer exist after a rename, keep those rows as inactive players
+insert into player_new (name, class, roles, active)
+  select distinct player, 'Unknown', '', 0 from (
+    select player from signup
+    union select player from event
+    union select player from encounter_player
+  ) where player not in (select name from player);
+
+create table signup_new (
+  raid integer,
+  time integer,
+  player_id integer,
+  type varchar2,
+  comment varchar2,
+  primary key (raid, player_id),
+  foreign key (raid) references raid(start),
+  foreign key (player_id) references player(id)
+);
+
+insert into signup_new
+  select s.raid, s.time, p.id, s.type, s.comment
+  from signup s join player_new p on p.name = s.player;
+
+create table encounter_player_new (
+  raid integer,
+  boss varchar2,
+  player_id integer,
+  role varchar2,
+  primary key (raid, boss, player_id),
+  foreign key (raid, boss) references encounter(raid, boss),
+  foreign key (player_id) references player(id)
+);
+
+insert into encounter_player_new
+  select e.raid, e.boss, p.id, e.role
+  from encounter_player e join player_new p on p.name = e.player;
+
+create table event_new (
+  raid integer,
+  player_id integer,
+  type varchar2,
+  comment varchar2,
+  time integer,
+  primary key (raid, time),
+  foreign key (raid) references raid(start),
+  foreign key (player_id) references player(id)
+);
+
+insert into event_new
+  select e.raid, p.id, e.type, e.comment, e.time
+  from event e join player_new p on p.name = e.player;
+
+drop table signup;
+drop table encounter_player;
+drop table event;
+drop table player;
+
+alter table player_new rename to player;
+alter table signup_new rename to signup;
+alter table encounter_player_new rename to encounter_player;
+alter table event_new rename to event;
+
+create index signup_player on signup (player_id);
+create index event_player on event (player_id);
+create index encounter_player_player on encounter_player (player_id);
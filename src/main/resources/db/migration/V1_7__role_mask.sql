@@ -0,0 +1,22 @@
+-- roles are stored as a bitmask of Player.Role ordinals: Tank=1, Healer=2, Melee=4, Ranged=8
+
+create table player_new (
+  id integer primary key autoincrement,
+  name varchar not null unique,
+  class varchar,
+  role_mask integer not null default 0,
+  active integer default 1
+);
+
+insert into player_new (id, name, class, role_mask, active)
+  select id, name, class,
+         (instr(roles, 'Tank') > 0) * 1
+           + (instr(roles, 'Healer') > 0) * 2
+           + (instr(roles, 'Melee') > 0) * 4
+           + (instr(roles, 'Ranged') > 0) * 8,
+         active
+  from player;
+
+drop table player;
+
+alter table player_new rename to player;
@@ -0,0 +1,90 @@
+package org.superhelt.wow;
+
+import org.flywaydb.core.Flyway;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.superhelt.wow.api.RaidEvents;
+import org.superhelt.wow.dao.*;
+import org.superhelt.wow.om.Raid;
+import org.superhelt.wow.stats.AttendanceStats;
+import org.superhelt.wow.stats.BenchStats;
+
+import java.io.File;
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class HttpHandlerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RaidRepository raidRepository;
+    private LocalServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        ConnectionPool dataSource = new ConnectionPool("jdbc:sqlite:" + new File(folder.getRoot(), "raidplanner.db"), 2);
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.migrate();
+
+        DatabaseWriter writer = new DatabaseWriter(dataSource, 10, 10);
+        PlayerDao playerDao = new PlayerDao(dataSource, writer);
+        raidRepository = new RaidRepository(new RaidDao(dataSource, writer, playerDao), playerDao);
+        AttendanceStats attendanceStats = new AttendanceStats();
+        raidRepository.addListener(attendanceStats);
+        BenchStats benchStats = new BenchStats();
+        raidRepository.addListener(benchStats);
+        RaidPageCache raidPageCache = new RaidPageCache(10);
+        raidRepository.addListener(raidPageCache);
+
+        server = new LocalServer(new HttpHandler(raidRepository, playerDao, attendanceStats, benchStats, raidPageCache,
+                new StaticResources("/styles.css"), new RaidEvents(raidRepository), 16 * 1024));
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void unchangedPageIsNotModified() throws Exception {
+        LocalServer.Response page = server.get("/signup");
+        assertEquals(200, page.status);
+        String etag = page.header("ETag");
+        assertNotNull(etag);
+        assertEquals("no-cache", page.header("Cache-Control"));
+
+        LocalServer.Response revalidated = server.get("/signup", "If-None-Match: " + etag);
+        assertEquals(304, revalidated.status);
+        assertEquals(etag, revalidated.header("ETag"));
+        assertEquals("", revalidated.body);
+
+        assertEquals(304, server.get("/planRaid", "If-None-Match: \"other\", W/" + etag).status);
+        assertEquals(304, server.get("/", "If-None-Match: *").status);
+    }
+
+    @Test
+    public void changedDataIsServedAgain() throws Exception {
+        String etag = server.get("/signup").header("ETag");
+
+        raidRepository.addRaid(new Raid(LocalDate.of(2019, 3, 5))).join();
+
+        LocalServer.Response page = server.get("/signup", "If-None-Match: " + etag);
+        assertEquals(200, page.status);
+        assertNotEquals(etag, page.header("ETag"));
+        assertTrue(page.body.contains("2019-03-05"));
+    }
+
+    @Test
+    public void writesAndActionsAreNeverNotModified() throws Exception {
+        String etag = server.get("/signup").header("ETag");
+
+        assertEquals(200, server.get("/signup?action=addRaid&time=2019-03-05", "If-None-Match: " + etag).status);
+        assertEquals(200, server.request("POST", "/signup", "If-None-Match: " + etag, "Content-Length: 0").status);
+    }
+}
@@ -0,0 +1,60 @@
+package org.superhelt.wow;
+
+import org.eclipse.jetty.server.Handler;
+import org.eclipse.jetty.server.LocalConnector;
+import org.eclipse.jetty.server.Server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs a handler in a Jetty server without a network connector and answers raw HTTP/1.1 requests, for tests.
+ */
+class LocalServer {
+
+    private final Server server = new Server();
+    private final LocalConnector connector = new LocalConnector(server);
+
+    LocalServer(Handler handler) throws Exception {
+        server.addConnector(connector);
+        server.setHandler(handler);
+        server.start();
+    }
+
+    Response get(String uri, String... headers) throws Exception {
+        return request("GET", uri, headers);
+    }
+
+    Response request(String method, String uri, String... headers) throws Exception {
+        StringBuilder request = new StringBuilder(method).append(' ').append(uri).append(" HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n");
+        for(String header : headers) {
+            request.append(header).append("\r\n");
+        }
+        return new Response(connector.getResponse(request.append("\r\n").toString()));
+    }
+
+    void stop() throws Exception {
+        server.stop();
+    }
+
+    static class Response {
+        final int status;
+        final Map<String, String> headers = new HashMap<>();
+        final String body;
+
+        Response(String raw) {
+            int end = raw.indexOf("\r\n\r\n");
+            String[] lines = raw.substring(0, end).split("\r\n");
+            status = Integer.parseInt(lines[0].split(" ")[1]);
+            for(int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                headers.put(lines[i].substring(0, colon).toLowerCase(), lines[i].substring(colon + 1).trim());
+            }
+            body = raw.substring(end + 4);
+        }
+
+        String header(String name) {
+            return headers.get(name.toLowerCase());
+        }
+    }
+}
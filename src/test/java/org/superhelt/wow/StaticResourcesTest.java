@@ -0,0 +1,138 @@
+package org.superhelt.wow;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class StaticResourcesTest {
+
+    private String css;
+    private StaticResources resources;
+    private LocalServer server;
+
+    @Before
+    public void startServer() throws Exception {
+        try(InputStream is = getClass().getResourceAsStream("/styles.css")) {
+            css = new String(readAll(is), StandardCharsets.ISO_8859_1);
+        }
+        resources = new StaticResources("/styles.css");
+        server = new LocalServer(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response) throws IOException {
+                baseRequest.setHandled(true);
+                resources.serve(request, response);
+            }
+        });
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void servesTheAssetWithItsHash() throws Exception {
+        LocalServer.Response response = server.get("/styles.css");
+        assertEquals(200, response.status);
+        assertEquals(css, response.body);
+        assertEquals("\"" + version() + "\"", response.header("ETag"));
+        assertEquals("no-cache", response.header("Cache-Control"));
+
+        assertEquals("public, max-age=31536000, immutable", server.get("/" + resources.link("/styles.css")).header("Cache-Control"));
+        assertEquals("no-cache", server.get("/styles.css?v=stale").header("Cache-Control"));
+        assertEquals(404, server.get("/missing.css").status);
+    }
+
+    @Test
+    public void servesGzipWhenAccepted() throws Exception {
+        LocalServer.Response response = server.get("/styles.css", "Accept-Encoding: br;q=0, gzip");
+        assertEquals("gzip", response.header("Content-Encoding"));
+        assertEquals("\"" + version() + "-gzip\"", response.header("ETag"));
+        assertEquals(css, gunzip(response.body));
+
+        assertNull(server.get("/styles.css", "Accept-Encoding: gzip;q=0").header("Content-Encoding"));
+    }
+
+    @Test
+    public void matchingEtagIsNotModified() throws Exception {
+        String etag = server.get("/styles.css").header("ETag");
+        String gzippedEtag = server.get("/styles.css", "Accept-Encoding: gzip").header("ETag");
+
+        LocalServer.Response response = server.get("/styles.css", "If-None-Match: " + etag);
+        assertEquals(304, response.status);
+        assertEquals("", response.body);
+        assertEquals(304, server.get("/styles.css", "Accept-Encoding: gzip", "If-None-Match: " + gzippedEtag).status);
+        assertEquals(200, server.get("/styles.css", "If-None-Match: \"other\"").status);
+    }
+
+    @Test
+    public void servesByteRanges() throws Exception {
+        int length = css.length();
+
+        LocalServer.Response response = server.get("/styles.css", "Range: bytes=0-9", "Accept-Encoding: gzip");
+        assertEquals(206, response.status);
+        assertEquals("bytes 0-9/" + length, response.header("Content-Range"));
+        assertNull(response.header("Content-Encoding"));
+        assertEquals(css.substring(0, 10), response.body);
+
+        response = server.get("/styles.css", "Range: bytes=-5");
+        assertEquals(206, response.status);
+        assertEquals(css.substring(length - 5), response.body);
+
+        response = server.get("/styles.css", "Range: bytes=5-");
+        assertEquals(206, response.status);
+        assertEquals(css.substring(5), response.body);
+
+        response = server.get("/styles.css", "Range: bytes=" + length + "-");
+        assertEquals(416, response.status);
+        assertEquals("bytes */" + length, response.header("Content-Range"));
+
+        assertEquals(200, server.get("/styles.css", "Range: bytes=0-1,4-5").status);
+        assertEquals(200, server.get("/styles.css", "Range: lines=1-2").status);
+    }
+
+    @Test
+    public void staleIfRangeServesTheWholeAsset() throws Exception {
+        String etag = server.get("/styles.css").header("ETag");
+
+        assertEquals(206, server.get("/styles.css", "Range: bytes=0-9", "If-Range: " + etag).status);
+
+        LocalServer.Response response = server.get("/styles.css", "Range: bytes=0-9", "If-Range: \"stale\"");
+        assertEquals(200, response.status);
+        assertEquals(css, response.body);
+    }
+
+    private String version() {
+        String link = resources.link("/styles.css");
+        return link.substring(link.indexOf("?v=") + 3);
+    }
+
+    private static String gunzip(String body) throws IOException {
+        try(InputStream is = new GZIPInputStream(new ByteArrayInputStream(body.getBytes(StandardCharsets.ISO_8859_1)))) {
+            return new String(readAll(is), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static byte[] readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while((read = is.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,73 @@
+package org.superhelt.wow;
+
+import org.junit.Test;
+import org.superhelt.wow.om.Player;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+
+public class TemplateTest {
+
+    @Test
+    public void fillsSlotsBetweenLiterals() {
+        Template template = Template.compile("<h1>{boss} ({participants})</h1>");
+        assertEquals("<h1>Maut (12)</h1>", render(w -> template.slot(w, 0, "Maut").slot(w, 1, 12).end(w)));
+    }
+
+    @Test
+    public void escapesSlotsUnlessRaw() {
+        Template template = Template.compile("<li>{comment}|{!markup}</li>");
+        assertEquals("<li>&lt;b&gt; &amp; &quot;x&quot; &#39;y&#39;|<b>bold</b></li>",
+                render(w -> template.slot(w, 0, "<b> & \"x\" 'y'").slot(w, 1, "<b>bold</b>").end(w)));
+        assertEquals("<li>|</li>", render(w -> template.slot(w, 0, (String) null).slot(w, 1, (String) null).end(w)));
+    }
+
+    @Test
+    public void repeatedNamesAreSeparateSlots() {
+        Template template = Template.compile("<option value=\"{role}\">{role}</option>");
+        assertEquals("<option value=\"Tank\">Tank</option>",
+                render(w -> template.slot(w, 0, Player.Role.Tank).slot(w, 1, Player.Role.Tank).end(w)));
+    }
+
+    @Test
+    public void writesNumbers() {
+        Template template = Template.compile("{n}");
+        for(int n : new int[]{0, 7, 10, 99, 100, 1234567, -1, -80, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            assertEquals(Integer.toString(n), render(w -> template.slot(w, 0, n).end(w)));
+        }
+    }
+
+    @Test
+    public void writesPlayersWithTheirClass() {
+        Template template = Template.compile("<td>{!player}</td>");
+        Player player = new Player(1, "<Zik&ura>", Player.PlayerClass.DemonHunter, 0, true);
+        assertEquals("<td><span class=\"demonhunter\">&lt;Zik&amp;ura&gt;</span></td>", render(w -> template.slot(w, 0, player).end(w)));
+    }
+
+    @Test
+    public void templateWithoutSlots() {
+        Template template = Template.compile("<br/>");
+        assertEquals("<br/>", render(template::end));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnterminatedSlots() {
+        Template.compile("<h1>{boss</h1>");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnnamedSlots() {
+        Template.compile("<h1>{!}</h1>");
+    }
+
+    private String render(Consumer<PrintWriter> render) {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        render.accept(writer);
+        writer.flush();
+        return out.toString();
+    }
+}
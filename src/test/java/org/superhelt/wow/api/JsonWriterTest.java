@@ -0,0 +1,93 @@
+package org.superhelt.wow.api;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonWriterTest {
+
+    @Test
+    public void escapesStrings() {
+        assertEquals("\"plain\"", json(w -> w.value("plain")));
+        assertEquals("\"say \\\"hi\\\"\"", json(w -> w.value("say \"hi\"")));
+        assertEquals("\"C:\\\\raid\"", json(w -> w.value("C:\\raid")));
+        assertEquals("\"a\\nb\\rc\\td\"", json(w -> w.value("a\nb\rc\td")));
+        assertEquals("\"\\u0000\\u001f\\u0008\"", json(w -> w.value("\u0000\u001f\b")));
+        assertEquals("\"line\\u2028para\\u2029\"", json(w -> w.value("line\u2028para\u2029")));
+        assertEquals("\"</script>\u00e6\u00f8\u00e5\"", json(w -> w.value("</script>\u00e6\u00f8\u00e5")));
+        assertEquals("\"\"", json(w -> w.value("")));
+    }
+
+    @Test
+    public void escapesNames() {
+        assertEquals("{\"a\\\"b\":1}", json(w -> w.beginObject().name("a\"b").value(1).endObject()));
+    }
+
+    @Test
+    public void writesScalarValues() {
+        assertEquals("[1,-2,true,false,null,null,\"2019-03-05\"]", json(w -> w.beginArray()
+                .value(1).value(-2L).value(true).value(false).value((String) null).nullValue().value(LocalDate.of(2019, 3, 5))
+                .endArray()));
+    }
+
+    @Test
+    public void separatesMembersAndElements() {
+        assertEquals("{}", json(w -> w.beginObject().endObject()));
+        assertEquals("[]", json(w -> w.beginArray().endArray()));
+        assertEquals("{\"a\":1,\"b\":null,\"c\":\"x\"}", json(w -> w.beginObject()
+                .name("a").value(1).name("b").value((Object) null).name("c").value("x")
+                .endObject()));
+    }
+
+    @Test
+    public void separatesNestedValues() {
+        assertEquals("{\"raids\":[{\"start\":\"2019-03-05\",\"signups\":[]},{\"start\":\"2019-03-06\",\"signups\":[1,2]}],\"count\":2}",
+                json(w -> w.beginObject()
+                        .name("raids").beginArray()
+                        .beginObject().name("start").value("2019-03-05").name("signups").beginArray().endArray().endObject()
+                        .beginObject().name("start").value("2019-03-06").name("signups").beginArray().value(1).value(2).endArray().endObject()
+                        .endArray()
+                        .name("count").value(2)
+                        .endObject()));
+        assertEquals("[[],[[]],{},[{}]]", json(w -> w.beginArray()
+                .beginArray().endArray()
+                .beginArray().beginArray().endArray().endArray()
+                .beginObject().endObject()
+                .beginArray().beginObject().endObject().endArray()
+                .endArray()));
+    }
+
+    @Test
+    public void nestsDeeperThanTheInitialCapacity() {
+        StringBuilder expected = new StringBuilder();
+        for(int i = 0; i < 40; i++) {
+            expected.append("[1,");
+        }
+        expected.append('2');
+        for(int i = 0; i < 40; i++) {
+            expected.append(']');
+        }
+        assertEquals(expected.toString(), json(w -> {
+            for(int i = 0; i < 40; i++) {
+                w.beginArray().value(1);
+            }
+            w.value(2);
+            for(int i = 0; i < 40; i++) {
+                w.endArray();
+            }
+        }));
+    }
+
+    private String json(Consumer<JsonWriter> write) {
+        StringWriter out = new StringWriter();
+        PrintWriter writer = new PrintWriter(out);
+        write.accept(new JsonWriter(writer));
+        writer.flush();
+        return out.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package org.superhelt.wow.dao;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DatabaseWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConnectionPool dataSource;
+    private DatabaseWriter writer;
+
+    @Before
+    public void createTable() throws SQLException {
+        dataSource = new ConnectionPool("jdbc:sqlite:" + new File(folder.getRoot(), "writer.db"), 2);
+        try(Connection conn = dataSource.getConnection();
+            Statement st = conn.createStatement()) {
+            st.executeUpdate("create table value (v integer primary key)");
+        }
+        writer = new DatabaseWriter(dataSource, 10, 10);
+    }
+
+    @Test
+    public void failingCommandIsRolledBackToItsSavepoint() throws Exception {
+        CountDownLatch release = blockWriter();
+        CompletableFuture<Void> first = insert(1);
+        CompletableFuture<Void> failing = writer.update(conn -> {
+            insert(conn, 2);
+            insert(conn, 1);
+        }, "Unable to insert");
+        CompletableFuture<Void> last = insert(3);
+        release.countDown();
+
+        last.get(5, TimeUnit.SECONDS);
+        first.get(5, TimeUnit.SECONDS);
+        assertFailed(failing, SQLException.class);
+        assertEquals(list(0, 1, 3), values());
+    }
+
+    @Test
+    public void futuresCompleteOnceTheBatchIsCommitted() throws Exception {
+        CountDownLatch release = blockWriter();
+        List<CompletableFuture<List<Integer>>> seen = new ArrayList<>();
+        for(int i = 1; i <= 3; i++) {
+            seen.add(insert(i).thenApply(v -> values()));
+        }
+        release.countDown();
+
+        for(CompletableFuture<List<Integer>> future : seen) {
+            assertEquals(list(0, 1, 2, 3), future.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void writerSurvivesAnError() throws Exception {
+        CompletableFuture<Void> failing = writer.update(conn -> {
+            insert(conn, 1);
+            throw new AssertionError("broken command");
+        }, "Unable to insert");
+        assertFailed(failing, AssertionError.class);
+
+        insert(2).get(5, TimeUnit.SECONDS);
+        assertEquals(list(2), values());
+    }
+
+    /**
+     * Holds the writer inside a command until the latch is released, so the writes submitted meanwhile are queued
+     * and drained into the next batch together.
+     */
+    private CountDownLatch blockWriter() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writer.update(conn -> {
+            insert(conn, 0);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "Unable to block");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    private CompletableFuture<Void> insert(int value) {
+        return writer.update(conn -> insert(conn, value), "Unable to insert {}", value);
+    }
+
+    private void insert(Connection conn, int value) throws SQLException {
+        try(Statement st = conn.createStatement()) {
+            st.executeUpdate("insert into value values (" + value + ")");
+        }
+    }
+
+    private List<Integer> values() {
+        List<Integer> values = new ArrayList<>();
+        try(Connection conn = dataSource.getConnection();
+            Statement st = conn.createStatement();
+            ResultSet rs = st.executeQuery("select v from value order by v")) {
+            while(rs.next()) {
+                values.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return values;
+    }
+
+    private void assertFailed(CompletableFuture<?> future, Class<? extends Throwable> cause) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the write to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().toString(), cause.isInstance(e.getCause()));
+        }
+    }
+
+    private static List<Integer> list(Integer... values) {
+        List<Integer> list = new ArrayList<>();
+        for(Integer value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,230 @@
+package org.superhelt.wow.dao;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.superhelt.wow.om.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Migrates a database holding rows in the string formats written before V1_5 and checks that the data survives the
+ * conversions to integer dates, player ids and role masks.
+ */
+public class MigrationTest {
+
+    private static final DateTimeFormatter df = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final DateTimeFormatter dtf = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final DateTimeFormatter tf = DateTimeFormatter.ISO_TIME;
+
+    private static final LocalDate RAID = LocalDate.of(2019, 3, 5);
+    private static final LocalDate LEAP_DAY_RAID = LocalDate.of(2020, 2, 29);
+    private static final LocalDateTime FINALIZED = LocalDateTime.of(2019, 3, 5, 22, 15, 30, 123_000_000);
+    private static final LocalDateTime ON_THE_MINUTE = LocalDateTime.of(2019, 3, 1, 18, 0);
+    private static final LocalDateTime WITH_NANOS = LocalDateTime.of(2019, 3, 2, 9, 5, 7, 500_123_456);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ConnectionPool dataSource;
+    private Flyway flyway;
+
+    @Before
+    public void createStringSchema() {
+        dataSource = new ConnectionPool("jdbc:sqlite:" + new File(folder.getRoot(), "raidplanner.db"), 2);
+        flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.setTarget(MigrationVersion.fromVersion("1.4"));
+        flyway.migrate();
+    }
+
+    @Test
+    public void raidDatesBecomeEpochDaysAndSeconds() throws SQLException {
+        insertRaid(RAID, FINALIZED);
+        insertRaid(LEAP_DAY_RAID, null);
+        migrate();
+
+        assertEquals(FINALIZED.toEpochSecond(ZoneOffset.UTC), queryLong("select finalized from raid where start=" + RAID.toEpochDay()));
+        assertEquals(1, queryLong("select count(*) from raid where start=" + LEAP_DAY_RAID.toEpochDay() + " and finalized is null"));
+
+        Raid raid = raid(RAID);
+        assertEquals(FINALIZED.withNano(0), raid.finalized);
+        assertNull(raid(LEAP_DAY_RAID).finalized);
+    }
+
+    @Test
+    public void signupTimesRoundTripToTheSecond() throws SQLException {
+        insertRaid(RAID, null);
+        insertSignup(RAID, ON_THE_MINUTE, "Slip", Signup.Type.ACCEPTED, null);
+        insertSignup(RAID, WITH_NANOS, "Furo", Signup.Type.TENTATIVE, "late");
+        migrate();
+
+        Raid raid = raid(RAID);
+        assertEquals(ON_THE_MINUTE, signup(raid, "Slip").time);
+        assertEquals(WITH_NANOS.withNano(0), signup(raid, "Furo").time);
+        assertEquals(Signup.Type.TENTATIVE, signup(raid, "Furo").type);
+        assertEquals("late", signup(raid, "Furo").comment);
+    }
+
+    @Test
+    public void eventTimesBecomeExactMillisecondsOfDay() throws SQLException {
+        LocalTime[] times = {
+                LocalTime.of(19, 30),
+                LocalTime.of(19, 31, 5),
+                LocalTime.of(20, 15, 42, 250_000_000),
+                LocalTime.of(0, 0, 1, 1_000_000),
+                LocalTime.of(21, 0, 0, 7_000_000),
+                LocalTime.of(23, 59, 59, 999_999_999)
+        };
+        insertRaid(RAID, null);
+        for(LocalTime time : times) {
+            insertEvent(RAID, "Slip", Event.EventType.LATE, time);
+        }
+        migrate();
+
+        Raid raid = raid(RAID);
+        assertEquals(times.length, raid.events.size());
+        for(LocalTime time : times) {
+            long millis = time.toNanoOfDay() / 1_000_000;
+            assertEquals(tf.format(time), 1, queryLong("select count(*) from event where time=" + millis));
+            assertTrue(tf.format(time), raid.events.stream().anyMatch(e -> e.time.equals(LocalTime.ofNanoOfDay(millis * 1_000_000))));
+        }
+    }
+
+    @Test
+    public void duplicateEncountersAreMerged() throws SQLException {
+        insertRaid(RAID, null);
+        insertEncounter(RAID, Encounter.Boss.Maut);
+        insertEncounter(RAID, Encounter.Boss.Maut);
+        insertEncounterPlayer(RAID, Encounter.Boss.Maut, "Zikura", Player.Role.Healer);
+        migrate();
+
+        Raid raid = raid(RAID);
+        assertEquals(1, raid.encounters.size());
+        assertEquals(Collections.singletonList(player("Zikura")), raid.getEncounter(Encounter.Boss.Maut).getPlayersOfRole(Player.Role.Healer));
+    }
+
+    @Test
+    public void historyOfRenamedPlayersIsKeptAsInactivePlayers() throws SQLException {
+        insertRaid(RAID, null);
+        insertEncounter(RAID, Encounter.Boss.Maut);
+        insertSignup(RAID, ON_THE_MINUTE, "Renamed", Signup.Type.DECLINED, "away");
+        insertEvent(RAID, "Renamed", Event.EventType.NOSHOW, LocalTime.of(20, 0));
+        insertEncounterPlayer(RAID, Encounter.Boss.Maut, "Gone", Player.Role.Tank);
+        migrate();
+
+        assertEquals(1, queryLong("select count(*) from signup"));
+        assertEquals(1, queryLong("select count(*) from event"));
+        assertEquals(1, queryLong("select count(*) from encounter_player"));
+
+        Player renamed = player("Renamed");
+        Player gone = player("Gone");
+        for(Player orphan : new Player[]{renamed, gone}) {
+            assertTrue(orphan.id > 0);
+            assertFalse(orphan.active);
+            assertEquals(Player.PlayerClass.Unknown, orphan.playerClass);
+            assertTrue(orphan.roles.isEmpty());
+        }
+
+        Raid raid = raid(RAID);
+        assertEquals(renamed, signup(raid, "Renamed").player);
+        assertEquals(renamed, raid.events.get(0).player);
+        assertEquals(Collections.singletonList(gone), raid.getEncounter(Encounter.Boss.Maut).getPlayersOfRole(Player.Role.Tank));
+    }
+
+    @Test
+    public void rolesBecomeRoleMasks() throws SQLException {
+        migrate();
+
+        assertRoles("Twiniings", 1, EnumSet.of(Player.Role.Tank));
+        assertRoles("Markant", 2, EnumSet.of(Player.Role.Healer));
+        assertRoles("Lashin", 4, EnumSet.of(Player.Role.Melee));
+        assertRoles("Dunder", 8, EnumSet.of(Player.Role.Ranged));
+        assertRoles("Talltheuh", 5, EnumSet.of(Player.Role.Tank, Player.Role.Melee));
+        assertRoles("Drahc", 5, EnumSet.of(Player.Role.Tank, Player.Role.Melee));
+        assertRoles("Rathhal", 10, EnumSet.of(Player.Role.Healer, Player.Role.Ranged));
+        assertRoles("Zikura", 11, EnumSet.of(Player.Role.Tank, Player.Role.Healer, Player.Role.Ranged));
+    }
+
+    private void assertRoles(String name, int mask, EnumSet<Player.Role> roles) throws SQLException {
+        assertEquals(name, mask, queryLong("select role_mask from player where name='" + name + "'"));
+        assertEquals(name, roles, player(name).roles);
+        assertEquals(name, mask, Player.Role.toMask(roles));
+    }
+
+    private void migrate() {
+        flyway.setTarget(MigrationVersion.LATEST);
+        flyway.migrate();
+    }
+
+    private Player player(String name) {
+        return new PlayerDao(dataSource, new DatabaseWriter(dataSource, 10, 10)).getByName(name).get();
+    }
+
+    private Raid raid(LocalDate start) {
+        DatabaseWriter writer = new DatabaseWriter(dataSource, 10, 10);
+        List<Raid> raids = new RaidDao(dataSource, writer, new PlayerDao(dataSource, writer)).getRaids();
+        return raids.stream().filter(r -> r.start.equals(start)).findFirst().orElseThrow(AssertionError::new);
+    }
+
+    private Signup signup(Raid raid, String name) {
+        return raid.signups.stream().filter(s -> s.player.name.equals(name)).findFirst().orElseThrow(AssertionError::new);
+    }
+
+    private void insertRaid(LocalDate start, LocalDateTime finalized) throws SQLException {
+        execute("insert into raid (start, finalized) values (?, ?)", df.format(start), finalized == null ? null : dtf.format(finalized));
+    }
+
+    private void insertSignup(LocalDate raid, LocalDateTime time, String player, Signup.Type type, String comment) throws SQLException {
+        execute("insert into signup values (?, ?, ?, ?, ?)", df.format(raid), dtf.format(time), player, type.toString(), comment);
+    }
+
+    private void insertEvent(LocalDate raid, String player, Event.EventType type, LocalTime time) throws SQLException {
+        execute("insert into event values (?, ?, ?, ?, ?)", df.format(raid), player, type.toString(), "", tf.format(time));
+    }
+
+    private void insertEncounter(LocalDate raid, Encounter.Boss boss) throws SQLException {
+        execute("insert into encounter values (?, ?)", df.format(raid), boss.toString());
+    }
+
+    private void insertEncounterPlayer(LocalDate raid, Encounter.Boss boss, String player, Player.Role role) throws SQLException {
+        execute("insert into encounter_player values (?, ?, ?, ?)", df.format(raid), boss.toString(), player, role.toString());
+    }
+
+    private void execute(String sql, String... values) throws SQLException {
+        try(Connection conn = dataSource.getConnection();
+            PreparedStatement st = conn.prepareStatement(sql)) {
+            for(int i = 0; i < values.length; i++) {
+                st.setString(i + 1, values[i]);
+            }
+            st.executeUpdate();
+        }
+    }
+
+    private long queryLong(String sql) throws SQLException {
+        try(Connection conn = dataSource.getConnection();
+            Statement st = conn.createStatement();
+            ResultSet rs = st.executeQuery(sql)) {
+            assertTrue(sql, rs.next());
+            return rs.getLong(1);
+        }
+    }
+}
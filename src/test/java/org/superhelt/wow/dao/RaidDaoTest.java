@@ -0,0 +1,132 @@
+package org.superhelt.wow.dao;
+
+import org.flywaydb.core.Flyway;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.superhelt.wow.om.*;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RaidDaoTest {
+
+    private static final LocalDate SOURCE = LocalDate.of(2019, 3, 5);
+    private static final LocalDate RAID = LocalDate.of(2019, 3, 12);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private PlayerDao playerDao;
+    private RaidDao raidDao;
+
+    private Player tank;
+    private Player healer;
+    private Player melee;
+
+    @Before
+    public void createDao() {
+        ConnectionPool dataSource = new ConnectionPool("jdbc:sqlite:" + new File(folder.getRoot(), "raidplanner.db"), 2);
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.migrate();
+
+        DatabaseWriter writer = new DatabaseWriter(dataSource, 10, 10);
+        playerDao = new PlayerDao(dataSource, writer);
+        raidDao = new RaidDao(dataSource, writer, playerDao);
+
+        tank = playerDao.getByName("Twiniings").get();
+        healer = playerDao.getByName("Markant").get();
+        melee = playerDao.getByName("Lashin").get();
+    }
+
+    @Test
+    public void assignPlayersLeavesUnlistedPlayersAlone() {
+        Raid raid = raid(RAID);
+        raidDao.addEncounter(raid, Encounter.Boss.Maut).join();
+        raidDao.addPlayer(raid, Encounter.Boss.Maut, tank, Player.Role.Tank).join();
+        raidDao.addPlayer(raid, Encounter.Boss.Maut, healer, Player.Role.Healer).join();
+
+        Map<Player, Player.Role> roster = new HashMap<>();
+        roster.put(tank, null);
+        roster.put(melee, Player.Role.Melee);
+        raidDao.assignPlayers(raid, Collections.singletonMap(Encounter.Boss.Maut, roster)).join();
+
+        Encounter encounter = raidDao.getRaid(RAID).getEncounter(Encounter.Boss.Maut);
+        assertFalse(encounter.isParticipating(tank));
+        assertEquals(Player.Role.Healer, encounter.getRole(healer));
+        assertEquals(Player.Role.Melee, encounter.getRole(melee));
+    }
+
+    @Test
+    public void assignPlayersMovesPlayersBetweenRoles() {
+        Raid raid = raid(RAID);
+        raidDao.addEncounter(raid, Encounter.Boss.Maut).join();
+        raidDao.addEncounter(raid, Encounter.Boss.Wrathion).join();
+        raidDao.addPlayer(raid, Encounter.Boss.Maut, tank, Player.Role.Tank).join();
+
+        Map<Encounter.Boss, Map<Player, Player.Role>> layout = new EnumMap<>(Encounter.Boss.class);
+        layout.put(Encounter.Boss.Maut, Collections.singletonMap(tank, Player.Role.Melee));
+        layout.put(Encounter.Boss.Wrathion, Collections.singletonMap(tank, Player.Role.Tank));
+        raidDao.assignPlayers(raid, layout).join();
+
+        Raid stored = raidDao.getRaid(RAID);
+        assertEquals(Player.Role.Melee, stored.getEncounter(Encounter.Boss.Maut).getRole(tank));
+        assertEquals(Player.Role.Tank, stored.getEncounter(Encounter.Boss.Wrathion).getRole(tank));
+        assertEquals(1, stored.getEncounter(Encounter.Boss.Maut).numParticipants());
+    }
+
+    @Test
+    public void cloneRosterCopiesAcceptedPlayersOnly() {
+        Raid source = raid(SOURCE);
+        raidDao.addEncounter(source, Encounter.Boss.Maut).join();
+        raidDao.addEncounter(source, Encounter.Boss.Wrathion).join();
+        raidDao.addPlayer(source, Encounter.Boss.Maut, tank, Player.Role.Tank).join();
+        raidDao.addPlayer(source, Encounter.Boss.Maut, healer, Player.Role.Healer).join();
+        raidDao.addPlayer(source, Encounter.Boss.Wrathion, tank, Player.Role.Tank).join();
+
+        Raid raid = raid(RAID);
+        raidDao.addSignups(raid, Arrays.asList(
+                new Signup(RAID.atTime(12, 0), tank, Signup.Type.ACCEPTED, null),
+                new Signup(RAID.atTime(12, 0), healer, Signup.Type.DECLINED, "away"))).join();
+
+        raidDao.cloneRoster(raid, raidDao.getRaid(SOURCE)).join();
+
+        Raid cloned = raidDao.getRaid(RAID);
+        assertEquals(2, cloned.encounters.size());
+        assertEquals(Player.Role.Tank, cloned.getEncounter(Encounter.Boss.Maut).getRole(tank));
+        assertFalse(cloned.getEncounter(Encounter.Boss.Maut).isParticipating(healer));
+        assertEquals(Player.Role.Tank, cloned.getEncounter(Encounter.Boss.Wrathion).getRole(tank));
+    }
+
+    @Test
+    public void cloneRosterKeepsExistingAssignments() {
+        Raid source = raid(SOURCE);
+        raidDao.addEncounter(source, Encounter.Boss.Maut).join();
+        raidDao.addPlayer(source, Encounter.Boss.Maut, tank, Player.Role.Tank).join();
+
+        Raid raid = raid(RAID);
+        raidDao.addSignups(raid, Collections.singletonList(new Signup(RAID.atTime(12, 0), tank, Signup.Type.ACCEPTED, null))).join();
+        raidDao.addEncounter(raid, Encounter.Boss.Maut).join();
+        raidDao.addPlayer(raid, Encounter.Boss.Maut, tank, Player.Role.Melee).join();
+
+        raidDao.cloneRoster(raid, raidDao.getRaid(SOURCE)).join();
+
+        Raid cloned = raidDao.getRaid(RAID);
+        assertEquals(1, cloned.encounters.size());
+        assertEquals(Player.Role.Melee, cloned.getEncounter(Encounter.Boss.Maut).getRole(tank));
+    }
+
+    private Raid raid(LocalDate start) {
+        raidDao.addRaid(new Raid(start)).join();
+        return raidDao.getRaid(start);
+    }
+}
@@ -0,0 +1,141 @@
+package org.superhelt.wow.dao;
+
+import org.flywaydb.core.Flyway;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.superhelt.wow.om.Encounter;
+import org.superhelt.wow.om.Raid;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RaidRepositoryTest {
+
+    private static final LocalDate RAID = LocalDate.of(2019, 3, 5);
+    private static final LocalDate OTHER_RAID = LocalDate.of(2019, 3, 6);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private volatile boolean failReads;
+    private RaidRepository repository;
+
+    @Before
+    public void createRepository() {
+        ConnectionPool dataSource = new ConnectionPool("jdbc:sqlite:" + new File(folder.getRoot(), "raidplanner.db"), 2);
+        Flyway flyway = new Flyway();
+        flyway.setDataSource(dataSource);
+        flyway.migrate();
+
+        DatabaseWriter writer = new DatabaseWriter(dataSource, 10, 10);
+        PlayerDao playerDao = new PlayerDao(dataSource, writer);
+        RaidDao raidDao = new RaidDao(dataSource, writer, playerDao) {
+            @Override
+            public Raid getRaid(LocalDate date) {
+                if(failReads) {
+                    throw new IllegalStateException("Read failed");
+                }
+                return super.getRaid(date);
+            }
+        };
+        repository = new RaidRepository(raidDao, playerDao);
+    }
+
+    @Test
+    public void committedWritesAreSwappedIntoTheSnapshot() {
+        repository.addRaid(new Raid(RAID)).join();
+        Raid raid = repository.getRaid(RAID);
+        assertFalse(raid.containsBoss(Encounter.Boss.Maut));
+
+        repository.addEncounter(raid, Encounter.Boss.Maut).join();
+
+        assertTrue(repository.getRaid(RAID).containsBoss(Encounter.Boss.Maut));
+        assertFalse(raid.containsBoss(Encounter.Boss.Maut));
+    }
+
+    @Test
+    public void committedWriteCompletesWhenReadingItBackFails() {
+        repository.addRaid(new Raid(RAID)).join();
+        Recorder recorder = new Recorder();
+        repository.addListener(recorder);
+
+        failReads = true;
+        repository.addEncounter(repository.getRaid(RAID), Encounter.Boss.Maut).join();
+
+        assertTrue(repository.getRaid(RAID).containsBoss(Encounter.Boss.Maut));
+        assertEquals(2, recorder.loaded);
+    }
+
+    @Test
+    public void listenersSeeTheNewSnapshotBeforeTheWriteCompletes() {
+        Recorder recorder = new Recorder();
+        repository.addListener(recorder);
+        assertEquals(1, recorder.loaded);
+
+        repository.addRaid(new Raid(RAID)).join();
+        repository.addEncounter(repository.getRaid(RAID), Encounter.Boss.Maut).join();
+
+        assertEquals(2, recorder.changes.size());
+        assertNull(recorder.changes.get(0)[0]);
+        assertFalse(recorder.changes.get(0)[1].containsBoss(Encounter.Boss.Maut));
+        assertSame(recorder.changes.get(0)[1], recorder.changes.get(1)[0]);
+        assertSame(repository.getRaid(RAID), recorder.changes.get(1)[1]);
+        assertTrue(recorder.current.get(1));
+    }
+
+    @Test
+    public void failingListenerDoesNotFailTheWrite() {
+        repository.addListener(new Recorder() {
+            @Override
+            public void raidChanged(Raid previous, Raid current) {
+                throw new IllegalStateException("Listener failed");
+            }
+        });
+        Recorder recorder = new Recorder();
+        repository.addListener(recorder);
+
+        repository.addRaid(new Raid(RAID)).join();
+
+        assertEquals(1, recorder.changes.size());
+    }
+
+    @Test
+    public void versionsFollowTheRaidsThatChanged() {
+        long loaded = repository.getVersion();
+        assertEquals(loaded, repository.getVersion(RAID));
+
+        repository.addRaid(new Raid(RAID)).join();
+        assertEquals(loaded + 1, repository.getVersion());
+        assertEquals(loaded + 1, repository.getVersion(RAID));
+        assertEquals(loaded, repository.getVersion(OTHER_RAID));
+
+        repository.addRaid(new Raid(OTHER_RAID)).join();
+        assertEquals(loaded + 2, repository.getVersion());
+        assertEquals(loaded + 1, repository.getVersion(RAID));
+        assertEquals(loaded + 2, repository.getVersion(OTHER_RAID));
+    }
+
+    private class Recorder implements RaidListener {
+        final List<Raid[]> changes = new ArrayList<>();
+        final List<Boolean> current = new ArrayList<>();
+        int loaded;
+
+        @Override
+        public void raidsLoaded(Collection<Raid> raids) {
+            loaded++;
+        }
+
+        @Override
+        public void raidChanged(Raid previous, Raid current) {
+            changes.add(new Raid[]{previous, current});
+            this.current.add(repository.getRaid(current.start) == current);
+        }
+    }
+}
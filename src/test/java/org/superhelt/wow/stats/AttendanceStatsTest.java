@@ -0,0 +1,207 @@
+package org.superhelt.wow.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.superhelt.wow.om.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the incrementally maintained statistics against the full recount the signup page used to do per request.
+ */
+public class AttendanceStatsTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final Player early = new Player(1, "Early", Player.PlayerClass.Druid, 1, true);
+    private final Player late = new Player(2, "Late", Player.PlayerClass.Priest, 8, true);
+    private final Player never = new Player(3, "Never", Player.PlayerClass.Rogue, 4, true);
+    private final Player absent = new Player(4, "Absent", Player.PlayerClass.Mage, 8, true);
+    private final List<Player> players = Arrays.asList(early, late, never, absent);
+
+    private final TreeMap<LocalDate, Raid> raids = new TreeMap<>();
+    private final AttendanceStats stats = new AttendanceStats();
+
+    @Before
+    public void createRaids() {
+        Raid raid = raid(100);
+        signup(raid, early, Signup.Type.ACCEPTED);
+        event(raid, absent, Event.EventType.NOSHOW, 20);
+
+        raid = raid(40);
+        signup(raid, early, Signup.Type.TENTATIVE);
+        event(raid, early, Event.EventType.LATE, 20);
+        event(raid, early, Event.EventType.LATE, 21);
+
+        raid = raid(TODAY.toEpochDay() - TODAY.minus(1, ChronoUnit.MONTHS).toEpochDay());
+        signup(raid, early, Signup.Type.DECLINED);
+
+        raid = raid(20);
+        signup(raid, late, Signup.Type.TENTATIVE);
+
+        raid = raid(14);
+        signup(raid, late, Signup.Type.DECLINED);
+        event(raid, late, Event.EventType.NOSHOW, 20);
+
+        raid = raid(5);
+        signup(raid, early, Signup.Type.ACCEPTED);
+        signup(raid, late, Signup.Type.DECLINED);
+        event(raid, absent, Event.EventType.LATE, 20);
+
+        raid = raid(0);
+        signup(raid, late, Signup.Type.TENTATIVE);
+        event(raid, early, Event.EventType.NOSHOW, 20);
+    }
+
+    @Test
+    public void loadedStatsMatchRecount() {
+        stats.raidsLoaded(copies());
+        assertStats();
+    }
+
+    @Test
+    public void changedStatsMatchRecount() {
+        stats.raidsLoaded(Collections.emptyList());
+        List<Raid> created = new ArrayList<>(raids.values());
+        raids.clear();
+        for(Raid raid : created) {
+            raids.put(raid.start, raid);
+            stats.raidChanged(null, raid.immutableCopy());
+            assertStats();
+        }
+
+        Raid previous = raids.get(TODAY.minusDays(20));
+        Raid current = copy(previous);
+        current.signups.clear();
+        change(previous, current);
+
+        previous = raids.get(TODAY.minusDays(100));
+        current = copy(previous);
+        signup(current, late, Signup.Type.DECLINED);
+        current.events.clear();
+        change(previous, current);
+
+        previous = raids.get(TODAY.minusDays(100));
+        current = copy(previous);
+        current.signups.clear();
+        change(previous, current);
+
+        previous = raids.get(TODAY);
+        current = copy(previous);
+        signup(current, never, Signup.Type.ACCEPTED);
+        event(current, late, Event.EventType.LATE, 19);
+        change(previous, current);
+
+        Raid added = raid(3);
+        signup(added, early, Signup.Type.TENTATIVE);
+        stats.raidChanged(null, added.immutableCopy());
+        assertStats();
+    }
+
+    private void change(Raid previous, Raid current) {
+        raids.put(current.start, current);
+        stats.raidChanged(previous.immutableCopy(), current.immutableCopy());
+        assertStats();
+    }
+
+    private void assertStats() {
+        Map<AttendanceStats.Category, Map<Player, PlayerStat>> expected = recount();
+        for(AttendanceStats.Category category : AttendanceStats.Category.values()) {
+            for(Player player : players) {
+                PlayerStat want = expected.get(category).get(player);
+                PlayerStat got = stats.getStat(player, category);
+                String message = player.name + " " + category;
+                assertEquals(message + " today", want.getToday(), got.getToday());
+                assertEquals(message + " two weeks", want.getTwoWeeks(), got.getTwoWeeks());
+                assertEquals(message + " month", want.getMonth(), got.getMonth());
+                assertEquals(message + " total", want.getTotal(), got.getTotal());
+            }
+        }
+    }
+
+    /**
+     * The statistics as printSignupStats counted them before they were maintained incrementally.
+     */
+    private Map<AttendanceStats.Category, Map<Player, PlayerStat>> recount() {
+        Map<AttendanceStats.Category, Map<Player, PlayerStat>> result = new EnumMap<>(AttendanceStats.Category.class);
+        for(AttendanceStats.Category category : AttendanceStats.Category.values()) {
+            Map<Player, PlayerStat> stats = new HashMap<>();
+            players.forEach(p -> stats.put(p, new PlayerStat(p)));
+            result.put(category, stats);
+        }
+
+        for(Player player : players) {
+            boolean alreadyJoined = false;
+            for(Raid raid : raids.values()) {
+                if(alreadyJoined || raid.getSignupStatus(player).isPresent()) {
+                    Optional<Signup.Type> type = raid.getSignupStatus(player);
+                    if(!type.isPresent()) {
+                        incrementStats(result.get(AttendanceStats.Category.UNKNOWN).get(player), raid);
+                    } else if(type.get() == Signup.Type.TENTATIVE) {
+                        incrementStats(result.get(AttendanceStats.Category.TENTATIVE).get(player), raid);
+                    } else if(type.get() == Signup.Type.DECLINED) {
+                        incrementStats(result.get(AttendanceStats.Category.DECLINED).get(player), raid);
+                    }
+                    alreadyJoined = true;
+                }
+                for(Event event : raid.events) {
+                    if(!event.player.equals(player)) {
+                        continue;
+                    }
+                    if(event.type == Event.EventType.NOSHOW) {
+                        incrementStats(result.get(AttendanceStats.Category.NOSHOW).get(player), raid);
+                    } else if(event.type == Event.EventType.LATE) {
+                        incrementStats(result.get(AttendanceStats.Category.LATE).get(player), raid);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void incrementStats(PlayerStat stat, Raid raid) {
+        stat.incrementTotal();
+        if(raid.start.equals(TODAY)) {
+            stat.incrementToday();
+        }
+        if(raid.start.isAfter(TODAY.minus(2, ChronoUnit.WEEKS))) {
+            stat.incrementTwoWeeks();
+        }
+        if(raid.start.isAfter(TODAY.minus(1, ChronoUnit.MONTHS))) {
+            stat.incrementMonth();
+        }
+    }
+
+    private List<Raid> copies() {
+        List<Raid> copies = new ArrayList<>();
+        raids.values().forEach(r -> copies.add(r.immutableCopy()));
+        return copies;
+    }
+
+    private Raid raid(long daysAgo) {
+        Raid raid = new Raid(TODAY.minusDays(daysAgo));
+        raids.put(raid.start, raid);
+        return raid;
+    }
+
+    private Raid copy(Raid raid) {
+        Raid copy = new Raid(raid.start, raid.finalized);
+        copy.signups.addAll(raid.signups);
+        copy.events.addAll(raid.events);
+        copy.encounters.addAll(raid.encounters);
+        return copy;
+    }
+
+    private void signup(Raid raid, Player player, Signup.Type type) {
+        raid.signups.add(new Signup(raid.start.atTime(12, 0), player, type, null));
+    }
+
+    private void event(Raid raid, Player player, Event.EventType type, int hour) {
+        raid.events.add(new Event(LocalTime.of(hour, 0), player, type, null));
+    }
+}
@@ -0,0 +1,184 @@
+package org.superhelt.wow.stats;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.superhelt.wow.om.*;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the incrementally maintained bench counts against the full recount the planner used to do per request.
+ */
+public class BenchStatsTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    private final Player tank = new Player(1, "Tank", Player.PlayerClass.Warrior, 1, true);
+    private final Player healer = new Player(2, "Healer", Player.PlayerClass.Priest, 2, true);
+    private final Player melee = new Player(3, "Melee", Player.PlayerClass.Rogue, 4, true);
+    private final Player ranged = new Player(4, "Ranged", Player.PlayerClass.Mage, 8, true);
+
+    private final TreeMap<LocalDate, Raid> raids = new TreeMap<>();
+    private final BenchStats stats = new BenchStats();
+
+    @Before
+    public void createRaids() {
+        Raid raid = raid(100);
+        accept(raid, tank, healer, melee);
+        encounter(raid, Encounter.Boss.Wrathion, tank, healer);
+        encounter(raid, Encounter.Boss.Maut, tank, healer, melee);
+
+        raid = raid(40);
+        accept(raid, tank, healer, melee, ranged);
+        encounter(raid, Encounter.Boss.Wrathion, tank);
+        encounter(raid, Encounter.Boss.Maut, healer);
+
+        raid = raid(TODAY.toEpochDay() - TODAY.minus(1, ChronoUnit.MONTHS).toEpochDay());
+        accept(raid, melee, ranged);
+        encounter(raid, Encounter.Boss.Wrathion, melee);
+
+        raid = raid(14);
+        accept(raid, tank, melee, ranged);
+        encounter(raid, Encounter.Boss.Wrathion, tank, ranged);
+        encounter(raid, Encounter.Boss.Maut, tank);
+
+        raid = raid(5);
+        accept(raid, tank, healer, melee);
+        encounter(raid, Encounter.Boss.Wrathion, tank, healer);
+        encounter(raid, Encounter.Boss.Maut, tank, melee);
+        encounter(raid, Encounter.Boss.ProphetSkitra, healer, melee);
+
+        raid = raid(0);
+        accept(raid, tank, healer, melee, ranged);
+        encounter(raid, Encounter.Boss.Wrathion, tank, healer, ranged);
+    }
+
+    @Test
+    public void loadedBenchesMatchRecount() {
+        List<Raid> copies = new ArrayList<>();
+        raids.values().forEach(r -> copies.add(r.immutableCopy()));
+        stats.raidsLoaded(copies);
+        assertBenches();
+    }
+
+    @Test
+    public void changedBenchesMatchRecount() {
+        stats.raidsLoaded(Collections.emptyList());
+        List<Raid> created = new ArrayList<>(raids.values());
+        raids.clear();
+        for(Raid raid : created) {
+            raids.put(raid.start, raid);
+            stats.raidChanged(null, raid.immutableCopy());
+            assertBenches();
+        }
+
+        Raid previous = raids.get(TODAY.minusDays(5));
+        Raid current = copy(previous);
+        current.encounters.get(0).addPlayer(melee, Player.Role.Melee);
+        encounter(current, Encounter.Boss.Hivemind, ranged);
+        change(previous, current);
+
+        previous = raids.get(TODAY.minusDays(14));
+        current = copy(previous);
+        current.signups.removeIf(s -> s.player.equals(melee));
+        change(previous, current);
+
+        previous = raids.get(TODAY);
+        current = copy(previous);
+        current.encounters.clear();
+        change(previous, current);
+    }
+
+    private void change(Raid previous, Raid current) {
+        raids.put(current.start, current);
+        stats.raidChanged(previous.immutableCopy(), current.immutableCopy());
+        assertBenches();
+    }
+
+    private void assertBenches() {
+        for(Raid raid : raids.values()) {
+            List<PlayerStat> want = recount(raid);
+            List<PlayerStat> got = stats.getBenchedPlayers(raid.immutableCopy());
+            assertEquals(raid.start.toString(), want.size(), got.size());
+            for(int i = 0; i < want.size(); i++) {
+                String message = raid.start + " " + want.get(i).getPlayer().name;
+                assertEquals(message, want.get(i).getPlayer(), got.get(i).getPlayer());
+                assertEquals(message + " today", want.get(i).getToday(), got.get(i).getToday());
+                assertEquals(message + " two weeks", want.get(i).getTwoWeeks(), got.get(i).getTwoWeeks());
+                assertEquals(message + " month", want.get(i).getMonth(), got.get(i).getMonth());
+                assertEquals(message + " total", want.get(i).getTotal(), got.get(i).getTotal());
+            }
+        }
+    }
+
+    /**
+     * The bench counts as getBenchedPlayers counted them before they were maintained incrementally.
+     */
+    private List<PlayerStat> recount(Raid currentRaid) {
+        List<PlayerStat> playerStats = new ArrayList<>();
+        for(Player player : currentRaid.acceptedPlayers()) {
+            int numBenchedToday = 0;
+            int numBenchedTotal = 0;
+            int numBenchedTwoWeeks = 0;
+            int numBenchedMonth = 0;
+            for(Raid raid : raids.values()) {
+                if(raid.isAccepted(player)) {
+                    for(Encounter encounter : raid.encounters) {
+                        if(!encounter.isParticipating(player)) {
+                            if(raid.start.equals(currentRaid.start)) {
+                                numBenchedToday++;
+                            }
+                            if(raid.start.isAfter(TODAY.minus(2, ChronoUnit.WEEKS))) {
+                                numBenchedTwoWeeks++;
+                            }
+                            if(raid.start.isAfter(TODAY.minus(1, ChronoUnit.MONTHS))) {
+                                numBenchedMonth++;
+                            }
+                            numBenchedTotal++;
+                        }
+                    }
+                }
+            }
+            if(numBenchedToday > 0) {
+                playerStats.add(new PlayerStat(player, numBenchedToday, numBenchedTwoWeeks, numBenchedMonth, numBenchedTotal));
+            }
+        }
+        return playerStats;
+    }
+
+    private Raid raid(long daysAgo) {
+        Raid raid = new Raid(TODAY.minusDays(daysAgo));
+        raids.put(raid.start, raid);
+        return raid;
+    }
+
+    private Raid copy(Raid raid) {
+        Raid copy = new Raid(raid.start, raid.finalized);
+        copy.signups.addAll(raid.signups);
+        copy.events.addAll(raid.events);
+        for(Encounter encounter : raid.encounters) {
+            Encounter encounterCopy = new Encounter(encounter.boss);
+            encounter.getParticipants().forEach(p -> encounterCopy.addPlayer(p, encounter.getRole(p)));
+            copy.encounters.add(encounterCopy);
+        }
+        return copy;
+    }
+
+    private void accept(Raid raid, Player... players) {
+        for(Player player : players) {
+            raid.signups.add(new Signup(raid.start.atTime(12, 0), player, Signup.Type.ACCEPTED, null));
+        }
+    }
+
+    private void encounter(Raid raid, Encounter.Boss boss, Player... players) {
+        Encounter encounter = new Encounter(boss);
+        for(Player player : players) {
+            encounter.addPlayer(player, player.roles.iterator().next());
+        }
+        raid.encounters.add(encounter);
+    }
+}